@@ -1,23 +1,51 @@
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 public class AnalisadorSemantico extends GyhLangBaseListener {
     
-    // Tabela de símbolos: nome -> tipo
-    private Map<String, String> tabelaSimbolos = new HashMap<>();
+    // Tabela de símbolos: nome -> id -> tipo
+    private TabelaSimbolos tabelaSimbolos = new TabelaSimbolos();
+    
+    // Tipos das expressões e das variáveis dos comandos, por nó
+    private TabelaTipos tipos = new TabelaTipos();
+    
+    // Erros semânticos (e, se forem compartilhados, os das outras fases)
+    private final Diagnosticos diagnosticos;
+    
+    // Erros semânticos reportados por este analisador
+    private int quantidadeErros;
     
-    // Lista de erros semânticos
-    private List<String> erros = new ArrayList<>();
+    // Termo relacional a verificar na condição atual e se o percurso está dentro de um nó verificado
+    // (a expressão de uma atribuição ou esse termo): só lá variáveis não declaradas e cadeias nas
+    // expressões são reportadas
+    private GyhLangParser.TermoRelacionalContext termoVerificado;
+    private boolean verificando;
+    
+    public AnalisadorSemantico() {
+        this(new Diagnosticos());
+    }
+    
+    // Reporta os erros em 'diagnosticos', que pode ser compartilhado com as outras fases
+    public AnalisadorSemantico(Diagnosticos diagnosticos) {
+        this.diagnosticos = diagnosticos;
+    }
     
     @Override
     public void enterDeclaracao(GyhLangParser.DeclaracaoContext ctx) {
         String nomeVar = ctx.Var().getText();
-        String tipo = ctx.tipoVar().getText();
+        TipoGyh tipo = TipoGyh.valueOf(ctx.tipoVar().getText());
         
         // Verifica declaração duplicada
-        if (tabelaSimbolos.containsKey(nomeVar)) {
-            erros.add("Erro Semântico: Variável '" + nomeVar + "' já foi declarada anteriormente.");
-        } else {
-            tabelaSimbolos.put(nomeVar, tipo);
+        if (tabelaSimbolos.declarar(nomeVar, tipo) == TabelaSimbolos.AUSENTE) {
+            erro(CodigoErro.VARIAVEL_JA_DECLARADA, ctx, nomeVar);
         }
     }
     
@@ -26,18 +54,28 @@ public class AnalisadorSemantico extends GyhLangBaseListener {
         String nomeVar = ctx.Var().getText();
         
         // Verifica se variável foi declarada
-        if (!tabelaSimbolos.containsKey(nomeVar)) {
-            erros.add("Erro Semântico: Variável '" + nomeVar + "' não foi declarada.");
+        int id = tabelaSimbolos.buscar(nomeVar);
+        if (id == TabelaSimbolos.AUSENTE) {
+            erro(CodigoErro.VARIAVEL_NAO_DECLARADA, ctx, nomeVar);
             return;
         }
         
-        String tipoVar = tabelaSimbolos.get(nomeVar);
-        String tipoExpressao = obterTipoExpressao(ctx.expressaoAritmetica());
+        // A expressão é tipada ao ser percorrida; a compatibilidade é verificada na saída do comando
+        tipos.definir(ctx, tabelaSimbolos.getTipo(id));
+        verificando = true;
+    }
+    
+    @Override
+    public void exitComandoAtribuicao(GyhLangParser.ComandoAtribuicaoContext ctx) {
+        TipoGyh tipoVar = tipos.get(ctx);
+        if (tipoVar == null) return; // variável não declarada, já reportada
+        verificando = false;
+        
+        TipoGyh tipoExpressao = tipo(ctx.expressaoAritmetica());
         
         // Verifica compatibilidade de tipos
-        if (!tiposCompativeis(tipoVar, tipoExpressao)) {
-            erros.add("Erro Semântico: Tentativa de atribuir " + tipoExpressao + 
-                     " à variável '" + nomeVar + "' do tipo " + tipoVar + ".");
+        if (!tipoVar.aceita(tipoExpressao)) {
+            erro(CodigoErro.ATRIBUICAO_INCOMPATIVEL, ctx, ctx.Var().getText(), tipoExpressao, tipoVar);
         }
     }
     
@@ -45,8 +83,11 @@ public class AnalisadorSemantico extends GyhLangBaseListener {
     public void enterComandoEntrada(GyhLangParser.ComandoEntradaContext ctx) {
         String nomeVar = ctx.Var().getText();
         
-        if (!tabelaSimbolos.containsKey(nomeVar)) {
-            erros.add("Erro Semântico: Variável '" + nomeVar + "' não foi declarada.");
+        int id = tabelaSimbolos.buscar(nomeVar);
+        if (id == TabelaSimbolos.AUSENTE) {
+            erro(CodigoErro.VARIAVEL_NAO_DECLARADA, ctx, nomeVar);
+        } else {
+            tipos.definir(ctx, tabelaSimbolos.getTipo(id));
         }
     }
     
@@ -54,8 +95,11 @@ public class AnalisadorSemantico extends GyhLangBaseListener {
     public void enterComandoSaida(GyhLangParser.ComandoSaidaContext ctx) {
         if (ctx.Var() != null) {
             String nomeVar = ctx.Var().getText();
-            if (!tabelaSimbolos.containsKey(nomeVar)) {
-                erros.add("Erro Semântico: Variável '" + nomeVar + "' não foi declarada.");
+            int id = tabelaSimbolos.buscar(nomeVar);
+            if (id == TabelaSimbolos.AUSENTE) {
+                erro(CodigoErro.VARIAVEL_NAO_DECLARADA, ctx, nomeVar);
+            } else {
+                tipos.definir(ctx, tabelaSimbolos.getTipo(id));
             }
         }
     }
@@ -73,129 +117,460 @@ public class AnalisadorSemantico extends GyhLangBaseListener {
     }
     
     /**
-     * Valida se os tipos sendo comparados são compatíveis em uma expressão relacional
+     * Marca o termo relacional a validar quando for percorrido: só o da expressão relacional mais
+     * externa (o último, em 'a E b'), e só se ele compara duas expressões aritméticas
      */
     private void validarExpressaoRelacional(GyhLangParser.ExpressaoRelacionalContext ctx) {
         if (ctx == null) return;
         
-        // Processa o termo relacional na expressão
-        validarTermoRelacional(ctx.termoRelacional());
+        GyhLangParser.TermoRelacionalContext termo = ctx.termoRelacional();
+        if (termo != null && termo.expressaoAritmetica().size() >= 2) {
+            termoVerificado = termo;
+        }
+    }
+    
+    @Override
+    public void enterTermoRelacional(GyhLangParser.TermoRelacionalContext ctx) {
+        if (ctx == termoVerificado) {
+            verificando = true;
+        }
     }
     
     /**
-     * Valida um termo relacional individual
+     * Valida o termo relacional marcado: as duas expressões já estão tipadas
      */
-    private void validarTermoRelacional(GyhLangParser.TermoRelacionalContext ctx) {
-        if (ctx == null) return;
+    @Override
+    public void exitTermoRelacional(GyhLangParser.TermoRelacionalContext ctx) {
+        if (ctx != termoVerificado) return;
+        termoVerificado = null;
+        verificando = false;
         
-        // Se tem duas expressões aritméticas separadas por operador relacional
-        if (ctx.expressaoAritmetica().size() >= 2) {
-            String tipoEsq = obterTipoExpressao(ctx.expressaoAritmetica(0));
-            String tipoDir = obterTipoExpressao(ctx.expressaoAritmetica(1));
-            
-            // Verifica se um é STRING (não pode comparar STRING com números)
-            if ("STRING".equals(tipoEsq) || "STRING".equals(tipoDir)) {
-                erros.add("Erro Semântico: Não é permitido comparar tipos incompatíveis (STRING com números).");
-            }
+        TipoGyh tipoEsq = tipo(ctx.expressaoAritmetica(0));
+        TipoGyh tipoDir = tipo(ctx.expressaoAritmetica(1));
+        
+        // Verifica se um é STRING (não pode comparar STRING com números)
+        if (tipoEsq == TipoGyh.STRING || tipoDir == TipoGyh.STRING) {
+            erro(CodigoErro.COMPARACAO_COM_CADEIA, ctx, null);
         }
     }
-
-    private String obterTipoExpressao(GyhLangParser.ExpressaoAritmeticaContext ctx) {
-        // Verifica se tem subexpressão (lado esquerdo)
-        if (ctx.getRuleContext(GyhLangParser.ExpressaoAritmeticaContext.class, 0) != null) {
-            String tipoEsq = obterTipoExpressao(ctx.getRuleContext(GyhLangParser.ExpressaoAritmeticaContext.class, 0));
-            String tipoDir = obterTipoTermo(ctx.getRuleContext(GyhLangParser.TermoAritmeticoContext.class, 0));
-            
-            // REAL + qualquer coisa = REAL
-            if ("REAL".equals(tipoEsq) || "REAL".equals(tipoDir)) {
-                return "REAL";
-            }
-            return "INTEGER";
-        }
+    
+    // ---------- Tipos das expressões, de baixo para cima ----------
+    // Cada nó é tipado uma vez, ao sair dele, a partir dos tipos já anotados nos filhos
+    
+    @Override
+    public void exitExpressaoAritmetica(GyhLangParser.ExpressaoAritmeticaContext ctx) {
+        TipoGyh tipo = tipo(ctx.termoAritmetico());
         
-        // Caso base: apenas um termo
-        if (ctx.getRuleContext(GyhLangParser.TermoAritmeticoContext.class, 0) != null) {
-            return obterTipoTermo(ctx.getRuleContext(GyhLangParser.TermoAritmeticoContext.class, 0));
+        // Com subexpressão (lado esquerdo): REAL + qualquer coisa = REAL
+        if (ctx.expressaoAritmetica() != null) {
+            tipo = tipo(ctx.expressaoAritmetica()).combinar(tipo);
         }
+        tipos.definir(ctx, tipo);
+    }
+    
+    @Override
+    public void exitTermoAritmetico(GyhLangParser.TermoAritmeticoContext ctx) {
+        TipoGyh tipo = tipo(ctx.fatorAritmetico());
         
-        return "INTEGER";
+        // Com subtermo (lado esquerdo)
+        if (ctx.termoAritmetico() != null) {
+            tipo = tipo(ctx.termoAritmetico()).combinar(tipo);
+        }
+        tipos.definir(ctx, tipo);
     }
     
-    private String obterTipoTermo(GyhLangParser.TermoAritmeticoContext ctx) {
-        // Verifica se tem subtermo (lado esquerdo)
-        if (ctx.getRuleContext(GyhLangParser.TermoAritmeticoContext.class, 0) != null) {
-            String tipoEsq = obterTipoTermo(ctx.getRuleContext(GyhLangParser.TermoAritmeticoContext.class, 0));
-            String tipoDir = obterTipoFator(ctx.getRuleContext(GyhLangParser.FatorAritmeticoContext.class, 0));
-            
-            if ("REAL".equals(tipoEsq) || "REAL".equals(tipoDir)) {
-                return "REAL";
+    @Override
+    public void exitFatorAritmetico(GyhLangParser.FatorAritmeticoContext ctx) {
+        TipoGyh tipo;
+        if (ctx.NumReal() != null) {
+            tipo = TipoGyh.REAL;
+        } else if (ctx.NumInt() != null) {
+            tipo = TipoGyh.INTEGER;
+        } else if (ctx.String() != null) {
+            // String não pode ser usada em expressão aritmética
+            if (verificando) {
+                erro(CodigoErro.CADEIA_EM_EXPRESSAO, ctx, null);
+            }
+            tipo = TipoGyh.STRING; // Tipo inválido para aritmética
+        } else if (ctx.Var() != null) {
+            String nomeVar = ctx.Var().getText();
+            int id = tabelaSimbolos.buscar(nomeVar);
+            if (id != TabelaSimbolos.AUSENTE) {
+                tipo = tabelaSimbolos.getTipo(id);
+            } else {
+                // Variável não foi declarada - reporta erro
+                if (verificando) {
+                    erro(CodigoErro.VARIAVEL_NAO_DECLARADA, ctx, nomeVar);
+                }
+                tipo = TipoGyh.INTEGER; // Default
             }
-            return "INTEGER";
+        } else {
+            tipo = tipo(ctx.expressaoAritmetica());
         }
-        
-        // Caso base: apenas um fator
-        if (ctx.getRuleContext(GyhLangParser.FatorAritmeticoContext.class, 0) != null) {
-            return obterTipoFator(ctx.getRuleContext(GyhLangParser.FatorAritmeticoContext.class, 0));
+        tipos.definir(ctx, tipo);
+    }
+    
+    // Tipo já anotado; INTEGER para um nó incompleto (árvore com erro sintático)
+    private TipoGyh tipo(ParseTree no) {
+        TipoGyh tipo = no != null ? tipos.get(no) : null;
+        return tipo != null ? tipo : TipoGyh.INTEGER;
+    }
+    
+    // ---------- Erros ----------
+    // Cada erro é reportado com o código, a posição do nó e os argumentos; a mensagem só é montada se
+    // alguém a pedir (ver Diagnosticos). No limite de erros a análise para com Diagnosticos.LimiteAtingido.
+    
+    private void erro(CodigoErro codigo, ParserRuleContext no, String argumento, Object... extras) {
+        erro(codigo, no.getStart().getStartIndex(), argumento, extras);
+    }
+    
+    private void erro(CodigoErro codigo, AstGyh.No no, String argumento, Object... extras) {
+        erro(codigo, no.getPosicao(), argumento, extras);
+    }
+    
+    private void erro(CodigoErro codigo, int posicao, String argumento, Object... extras) {
+        quantidadeErros++;
+        diagnosticos.reportar(Diagnostico.naPosicao(codigo, posicao, argumento, extras));
+    }
+    
+    // ========== AST (ConstrutorAst) ==========
+    
+    /**
+     * Mesma análise do percurso da árvore do ANTLR, feita sobre a AstGyh: os erros e a ordem deles são
+     * os mesmos, inclusive nas condições, onde só o último termo relacional é verificado. Os tipos ficam
+     * em getTipos(), indexados pelo id dos nós.
+     */
+    public void analisar(AstGyh.Programa programa) {
+        tipos.reservar(programa.getQuantidadeNos());
+        declarar(programa);
+        for (AstGyh.Comando comando : programa.getComandos()) {
+            analisar(comando);
         }
-        
-        return "INTEGER";
     }
     
-    private String obterTipoFator(GyhLangParser.FatorAritmeticoContext ctx) {
-        if (ctx.NumReal() != null) {
-            return "REAL";
+    private void declarar(AstGyh.Programa programa) {
+        for (AstGyh.Declaracao declaracao : programa.getDeclaracoes()) {
+            String nomeVar = declaracao.getNome();
+            if (tabelaSimbolos.declarar(nomeVar, declaracao.getTipo()) == TabelaSimbolos.AUSENTE) {
+                erro(CodigoErro.VARIAVEL_JA_DECLARADA, declaracao, nomeVar);
+            }
+        }
+    }
+    
+    /**
+     * Analisa 'raiz' e os comandos aninhados nela, na ordem do fonte. SE, ENQTO e INICIO...FIM empilham os
+     * comandos internos em vez de recursão, então a profundidade do aninhamento não gasta pilha da thread.
+     */
+    private void analisar(AstGyh.Comando raiz) {
+        Deque<AstGyh.Comando> pilha = new ArrayDeque<>();
+        pilha.push(raiz);
+        while (!pilha.isEmpty()) {
+            analisarComando(pilha.pop(), pilha);
         }
-        if (ctx.NumInt() != null) {
-            return "INTEGER";
+    }
+    
+    // Analisa 'comando'; os comandos internos vão para 'pendentes', o próximo a analisar no topo
+    private void analisarComando(AstGyh.Comando comando, Deque<AstGyh.Comando> pendentes) {
+        if (comando instanceof AstGyh.Atribuicao) {
+            AstGyh.Atribuicao atribuicao = (AstGyh.Atribuicao) comando;
+            String nomeVar = atribuicao.getVariavel();
+            int id = tabelaSimbolos.buscar(nomeVar);
+            if (id == TabelaSimbolos.AUSENTE) {
+                erro(CodigoErro.VARIAVEL_NAO_DECLARADA, atribuicao, nomeVar);
+                tipar(atribuicao.getValor(), false);
+                return;
+            }
+            TipoGyh tipoVar = tabelaSimbolos.getTipo(id);
+            tipos.definir(atribuicao, tipoVar);
+            TipoGyh tipoExpressao = tipar(atribuicao.getValor(), true);
+            if (!tipoVar.aceita(tipoExpressao)) {
+                erro(CodigoErro.ATRIBUICAO_INCOMPATIVEL, atribuicao, nomeVar, tipoExpressao, tipoVar);
+            }
+        } else if (comando instanceof AstGyh.Leitura) {
+            String nomeVar = ((AstGyh.Leitura) comando).getVariavel();
+            int id = tabelaSimbolos.buscar(nomeVar);
+            if (id == TabelaSimbolos.AUSENTE) {
+                erro(CodigoErro.VARIAVEL_NAO_DECLARADA, comando, nomeVar);
+            } else {
+                tipos.definir(comando, tabelaSimbolos.getTipo(id));
+            }
+        } else if (comando instanceof AstGyh.Impressao) {
+            AstGyh.Expressao valor = ((AstGyh.Impressao) comando).getValor();
+            if (valor instanceof AstGyh.Variavel) {
+                String nomeVar = ((AstGyh.Variavel) valor).getNome();
+                int id = tabelaSimbolos.buscar(nomeVar);
+                if (id == TabelaSimbolos.AUSENTE) {
+                    erro(CodigoErro.VARIAVEL_NAO_DECLARADA, comando, nomeVar);
+                } else {
+                    tipos.definir(comando, tabelaSimbolos.getTipo(id));
+                }
+            }
+        } else if (comando instanceof AstGyh.Se) {
+            AstGyh.Se se = (AstGyh.Se) comando;
+            validarCondicao(se.getCondicao());
+            if (se.getSenao() != null) {
+                pendentes.push(se.getSenao());
+            }
+            pendentes.push(se.getEntao());
+        } else if (comando instanceof AstGyh.Enquanto) {
+            AstGyh.Enquanto enquanto = (AstGyh.Enquanto) comando;
+            validarCondicao(enquanto.getCondicao());
+            pendentes.push(enquanto.getCorpo());
+        } else {
+            List<AstGyh.Comando> filhos = ((AstGyh.Bloco) comando).getComandos();
+            for (int i = filhos.size() - 1; i >= 0; i--) {
+                pendentes.push(filhos.get(i));
+            }
         }
-        if (ctx.String() != null) {
-            // String não pode ser usada em expressão aritmética
-            erros.add("Erro Semântico: Cadeia de caracteres (String) não pode ser usada em expressão aritmética.");
-            return "STRING"; // Tipo inválido para aritmética
+    }
+    
+    /**
+     * Equivalente a validarExpressaoRelacional: em 'a E b' só o termo da direita é verificado, e um
+     * termo entre parênteses não é verificado. As expressões dos outros termos também são tipadas,
+     * sem reportar erros.
+     */
+    private void validarCondicao(AstGyh.Expressao condicao) {
+        AstGyh.Expressao termo = condicao;
+        if (termo instanceof AstGyh.OperacaoBinaria && ((AstGyh.OperacaoBinaria) termo).getOperador().isLogico()) {
+            termo = ((AstGyh.OperacaoBinaria) termo).getDireita();
         }
-        if (ctx.Var() != null) {
-            String nomeVar = ctx.Var().getText();
-            if (tabelaSimbolos.containsKey(nomeVar)) {
-                return tabelaSimbolos.get(nomeVar);
+        Deque<AstGyh.Expressao> pilha = new ArrayDeque<>();
+        pilha.push(condicao);
+        while (!pilha.isEmpty()) {
+            AstGyh.Expressao atual = pilha.pop();
+            if (atual instanceof AstGyh.Parenteses) {
+                pilha.push(((AstGyh.Parenteses) atual).getInterna());
+                continue;
+            }
+            AstGyh.OperacaoBinaria operacao = (AstGyh.OperacaoBinaria) atual;
+            if (operacao.getOperador().isLogico()) {
+                pilha.push(operacao.getDireita());
+                pilha.push(operacao.getEsquerda());
+                continue;
+            }
+            boolean verificar = operacao == termo;
+            TipoGyh tipoEsq = tipar(operacao.getEsquerda(), verificar);
+            TipoGyh tipoDir = tipar(operacao.getDireita(), verificar);
+            if (verificar && (tipoEsq == TipoGyh.STRING || tipoDir == TipoGyh.STRING)) {
+                erro(CodigoErro.COMPARACAO_COM_CADEIA, operacao, null);
+            }
+        }
+    }
+    
+    /**
+     * Anota o tipo de cada nó da expressão aritmética, de baixo para cima, e devolve o da raiz: uma folha
+     * tem o próprio tipo, parênteses o da expressão interna e uma operação é REAL se um dos lados for REAL
+     * e INTEGER caso contrário, como no percurso da árvore. Usa uma pilha em vez de recursão; as folhas
+     * são tipadas da esquerda para a direita, para reportar os erros (se 'reportar') na mesma ordem.
+     */
+    private TipoGyh tipar(AstGyh.Expressao raiz, boolean reportar) {
+        Deque<AstGyh.Expressao> pilha = new ArrayDeque<>();
+        pilha.push(raiz);
+        while (!pilha.isEmpty()) {
+            AstGyh.Expressao atual = pilha.peek();
+            if (atual instanceof AstGyh.OperacaoBinaria) {
+                AstGyh.OperacaoBinaria operacao = (AstGyh.OperacaoBinaria) atual;
+                if (tipos.get(operacao.getEsquerda()) == null) {
+                    pilha.push(operacao.getDireita());
+                    pilha.push(operacao.getEsquerda());
+                    continue;
+                }
+                tipos.definir(operacao,
+                        tipos.get(operacao.getEsquerda()).combinar(tipos.get(operacao.getDireita())));
+            } else if (atual instanceof AstGyh.Parenteses) {
+                AstGyh.Expressao interna = ((AstGyh.Parenteses) atual).getInterna();
+                if (tipos.get(interna) == null) {
+                    pilha.push(interna);
+                    continue;
+                }
+                tipos.definir(atual, tipos.get(interna));
+            } else {
+                tipos.definir(atual, tipoFolha(atual, reportar));
+            }
+            pilha.pop();
+        }
+        return tipos.get(raiz);
+    }
+    
+    private TipoGyh tipoFolha(AstGyh.Expressao folha, boolean reportar) {
+        if (folha instanceof AstGyh.Variavel) {
+            String nomeVar = ((AstGyh.Variavel) folha).getNome();
+            int id = tabelaSimbolos.buscar(nomeVar);
+            if (id != TabelaSimbolos.AUSENTE) {
+                return tabelaSimbolos.getTipo(id);
             }
-            // Variável não foi declarada - reporta erro
-            erros.add("Erro Semântico: Variável '" + nomeVar + "' não foi declarada.");
-            return "INTEGER"; // Default
+            if (reportar) {
+                erro(CodigoErro.VARIAVEL_NAO_DECLARADA, folha, nomeVar);
+            }
+            return TipoGyh.INTEGER;
         }
-        if (ctx.getRuleContext(GyhLangParser.ExpressaoAritmeticaContext.class, 0) != null) {
-            return obterTipoExpressao(ctx.getRuleContext(GyhLangParser.ExpressaoAritmeticaContext.class, 0));
+        switch (((AstGyh.Literal) folha).getTipo()) {
+            case REAL:
+                return TipoGyh.REAL;
+            case CADEIA:
+                if (reportar) {
+                    erro(CodigoErro.CADEIA_EM_EXPRESSAO, folha, null);
+                }
+                return TipoGyh.STRING;
+            default:
+                return TipoGyh.INTEGER;
         }
-        return "INTEGER";
     }
     
-    private boolean tiposCompativeis(String tipoVar, String tipoExpressao) {
-        // REAL pode receber INTEGER ou REAL
-        if ("REAL".equals(tipoVar)) {
-            return true;
+    // ========== Modo paralelo ==========
+    
+    // abaixo disso não compensa dividir os comandos em mais pedaços
+    private static final int MINIMO_COMANDOS_PEDACO = 256;
+    
+    // Analisador de um pedaço do modo paralelo: lê a tabela de símbolos congelada, anota em 'tipos' e
+    // reporta em 'diagnosticos'
+    private AnalisadorSemantico(TabelaSimbolos tabelaSimbolos, TabelaTipos tipos, Diagnosticos diagnosticos) {
+        this(diagnosticos);
+        this.tabelaSimbolos = tabelaSimbolos;
+        this.tipos = tipos;
+    }
+    
+    /**
+     * Mesmo resultado de percorrer a árvore inteira, com os comandos verificados em paralelo. GYH tem um
+     * só escopo, declarado todo em [DECLARAR]: depois das declarações (processadas antes, em sequência)
+     * a tabela de símbolos é congelada e cada comando de [PROGRAMA] pode ser verificado sem depender dos
+     * outros. Os comandos são divididos em até 'partes' pedaços, verificados no 'pool' por analisadores
+     * próprios; os erros e os tipos de cada pedaço são juntados na ordem do fonte. Com limite de erros
+     * cada pedaço para quando chega ao que ainda resta, e a junção lança Diagnosticos.LimiteAtingido como
+     * a análise sequencial lançaria.
+     */
+    public void analisarParalelo(GyhLangParser.ProgramaContext programa, int partes, ForkJoinPool pool)
+            throws InterruptedException {
+        ParseTreeWalker walker = new IterativeParseTreeWalker();
+        walker.walk(this, programa.listaDeclaracoes());
+        tabelaSimbolos.congelar();
+        
+        final List<GyhLangParser.ComandoContext> comandos = programa.listaComandos().comando();
+        final int limite = Math.max(1, diagnosticos.restantes());
+        List<Callable<AnalisadorSemantico>> tarefas = new ArrayList<>();
+        int[] cortes = dividir(comandos.size(), partes);
+        for (int i = 0; i + 1 < cortes.length; i++) {
+            final int inicio = cortes[i];
+            final int fim = cortes[i + 1];
+            tarefas.add(new Callable<AnalisadorSemantico>() {
+                public AnalisadorSemantico call() {
+                    // as anotações da árvore não são sincronizadas: cada pedaço tem as suas
+                    AnalisadorSemantico pedaco = new AnalisadorSemantico(tabelaSimbolos, new TabelaTipos(),
+                            new Diagnosticos(limite));
+                    ParseTreeWalker walker = new IterativeParseTreeWalker();
+                    try {
+                        for (int c = inicio; c < fim; c++) {
+                            walker.walk(pedaco, comandos.get(c));
+                        }
+                    } catch (Diagnosticos.LimiteAtingido e) {
+                        // o pedaço já tem todos os erros que ainda podem ser reportados
+                    }
+                    return pedaco;
+                }
+            });
+        }
+        List<AnalisadorSemantico> pedacos = executar(tarefas, pool);
+        for (int i = 0; i < pedacos.size(); i++) {
+            AnalisadorSemantico pedaco = pedacos.get(i);
+            tipos.incorporar(pedaco.tipos, comandos.get(cortes[i]).getStart().getTokenIndex());
+            quantidadeErros += pedaco.quantidadeErros;
+            diagnosticos.incorporar(pedaco.diagnosticos);
         }
-        // INTEGER só pode receber INTEGER
-        return "INTEGER".equals(tipoVar) && "INTEGER".equals(tipoExpressao);
     }
     
+    /**
+     * analisar(AstGyh.Programa) com os comandos verificados em paralelo, como em
+     * analisarParalelo(ProgramaContext, ...). Os pedaços anotam os tipos direto em getTipos(): cada nó
+     * tem a sua posição no vetor, reservado antes.
+     */
+    public void analisarParalelo(AstGyh.Programa programa, int partes, ForkJoinPool pool)
+            throws InterruptedException {
+        tipos.reservar(programa.getQuantidadeNos());
+        declarar(programa);
+        tabelaSimbolos.congelar();
+        
+        final List<AstGyh.Comando> comandos = programa.getComandos();
+        final int limite = Math.max(1, diagnosticos.restantes());
+        List<Callable<AnalisadorSemantico>> tarefas = new ArrayList<>();
+        int[] cortes = dividir(comandos.size(), partes);
+        for (int i = 0; i + 1 < cortes.length; i++) {
+            final int inicio = cortes[i];
+            final int fim = cortes[i + 1];
+            tarefas.add(new Callable<AnalisadorSemantico>() {
+                public AnalisadorSemantico call() {
+                    AnalisadorSemantico pedaco = new AnalisadorSemantico(tabelaSimbolos, tipos,
+                            new Diagnosticos(limite));
+                    try {
+                        for (int c = inicio; c < fim; c++) {
+                            pedaco.analisar(comandos.get(c));
+                        }
+                    } catch (Diagnosticos.LimiteAtingido e) {
+                        // o pedaço já tem todos os erros que ainda podem ser reportados
+                    }
+                    return pedaco;
+                }
+            });
+        }
+        for (AnalisadorSemantico pedaco : executar(tarefas, pool)) {
+            quantidadeErros += pedaco.quantidadeErros;
+            diagnosticos.incorporar(pedaco.diagnosticos);
+        }
+    }
+    
+    // Limites dos pedaços: de cortes[i] (inclusive) a cortes[i + 1], com pelo menos MINIMO_COMANDOS_PEDACO
+    // comandos cada, exceto o último
+    private static int[] dividir(int quantidade, int partes) {
+        int tamanho = Math.max(MINIMO_COMANDOS_PEDACO, (quantidade + partes - 1) / Math.max(partes, 1));
+        int pedacos = Math.max(1, (quantidade + tamanho - 1) / tamanho);
+        int[] cortes = new int[pedacos + 1];
+        for (int i = 1; i <= pedacos; i++) {
+            cortes[i] = Math.min(quantidade, i * tamanho);
+        }
+        return cortes;
+    }
+    
+    // Executa os pedaços e devolve os analisadores na ordem das tarefas
+    private static List<AnalisadorSemantico> executar(List<Callable<AnalisadorSemantico>> tarefas,
+                                                      ForkJoinPool pool) throws InterruptedException {
+        List<AnalisadorSemantico> pedacos = new ArrayList<>(tarefas.size());
+        try {
+            for (Future<AnalisadorSemantico> f : pool.invokeAll(tarefas)) {
+                pedacos.add(f.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha na análise semântica paralela", e.getCause());
+        }
+        return pedacos;
+    }
+    
+    // Mensagens dos erros semânticos, montadas na chamada
     public List<String> getErros() {
-        return erros;
+        return diagnosticos.getMensagens(CodigoErro.Fase.SEMANTICA);
     }
     
     public boolean temErros() {
-        return !erros.isEmpty();
+        return quantidadeErros > 0;
+    }
+    
+    public Diagnosticos getDiagnosticos() {
+        return diagnosticos;
     }
     
     public void imprimirTabelaSimbolos() {
         System.out.println("\n========== TABELA DE SÍMBOLOS ==========");
         System.out.printf("%-20s | %-10s\n", "VARIÁVEL", "TIPO");
         System.out.println("----------------------------------------");
-        for (Map.Entry<String, String> entry : tabelaSimbolos.entrySet()) {
-            System.out.printf("%-20s | %-10s\n", entry.getKey(), entry.getValue());
+        for (int id = 0; id < tabelaSimbolos.tamanho(); id++) {
+            System.out.printf("%-20s | %-10s\n", tabelaSimbolos.getNome(id), tabelaSimbolos.getTipo(id));
         }
         System.out.println("========================================\n");
     }
     
-    public Map<String, String> getTabelaSimbolos() {
+    public TabelaSimbolos getTabelaSimbolos() {
         return tabelaSimbolos;
     }
+    
+    public TabelaTipos getTipos() {
+        return tipos;
+    }
 }
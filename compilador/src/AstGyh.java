@@ -0,0 +1,352 @@
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * AST tipada e imutável de um programa GYH, montada pelo ConstrutorAst a partir da árvore do GyhLangParser.
+ *
+ * Os nós guardam só o necessário para a análise semântica e a geração de código: nomes, operadores,
+ * o lexema dos literais, a posição (índice do primeiro caractere no fonte) e um id sequencial, usado para
+ * guardar dados por nó em vetores (ver TabelaTipos). Não há ligação com o pai, com os tokens nem com o
+ * parser, então depois de construída a AST a árvore do ANTLR e o fluxo de tokens podem ser descartados.
+ */
+public final class AstGyh {
+
+    private AstGyh() {
+    }
+
+    public enum Operador {
+        SOMA("+"), SUBTRACAO("-"), MULTIPLICACAO("*"), DIVISAO("/"),
+        MENOR("<"), MENOR_IGUAL("<="), MAIOR(">"), MAIOR_IGUAL(">="), IGUAL("=="), DIFERENTE("!="),
+        E("E"), OU("OU");
+
+        private final String simbolo;
+
+        Operador(String simbolo) {
+            this.simbolo = simbolo;
+        }
+
+        public String getSimbolo() {
+            return simbolo;
+        }
+
+        public boolean isRelacional() {
+            return ordinal() >= MENOR.ordinal() && ordinal() <= DIFERENTE.ordinal();
+        }
+
+        public boolean isLogico() {
+            return this == E || this == OU;
+        }
+
+        public static Operador deSimbolo(String simbolo) {
+            for (Operador op : values()) {
+                if (op.simbolo.equals(simbolo)) return op;
+            }
+            throw new IllegalArgumentException("Operador desconhecido: " + simbolo);
+        }
+    }
+
+    public enum TipoLiteral {
+        INTEIRO, REAL, CADEIA
+    }
+
+    public abstract static class No {
+        private final int id;
+        private final int posicao;
+
+        No(int id, int posicao) {
+            this.id = id;
+            this.posicao = posicao;
+        }
+
+        // Número do nó, de 0 a Programa.getQuantidadeNos() - 1; indexa tabelas como a TabelaTipos
+        public int getId() {
+            return id;
+        }
+
+        // Índice (em code points) do primeiro caractere do nó no fonte
+        public int getPosicao() {
+            return posicao;
+        }
+    }
+
+    // --- Programa e declarações ---
+
+    public static final class Programa extends No {
+        private final List<Declaracao> declaracoes;
+        private final List<Comando> comandos;
+        private final int quantidadeNos;
+
+        public Programa(int id, int posicao, List<Declaracao> declaracoes, List<Comando> comandos,
+                        int quantidadeNos) {
+            super(id, posicao);
+            this.declaracoes = Collections.unmodifiableList(declaracoes);
+            this.comandos = Collections.unmodifiableList(comandos);
+            this.quantidadeNos = quantidadeNos;
+        }
+
+        public List<Declaracao> getDeclaracoes() {
+            return declaracoes;
+        }
+
+        public List<Comando> getComandos() {
+            return comandos;
+        }
+
+        // Quantidade de nós da AST, incluindo o próprio Programa
+        public int getQuantidadeNos() {
+            return quantidadeNos;
+        }
+    }
+
+    public static final class Declaracao extends No {
+        private final String nome;
+        private final TipoGyh tipo;   // INTEGER ou REAL
+
+        public Declaracao(int id, int posicao, String nome, TipoGyh tipo) {
+            super(id, posicao);
+            this.nome = nome;
+            this.tipo = tipo;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+
+        public TipoGyh getTipo() {
+            return tipo;
+        }
+    }
+
+    // --- Comandos ---
+
+    public abstract static class Comando extends No {
+        Comando(int id, int posicao) {
+            super(id, posicao);
+        }
+    }
+
+    public static final class Atribuicao extends Comando {
+        private final String variavel;
+        private final Expressao valor;
+
+        public Atribuicao(int id, int posicao, String variavel, Expressao valor) {
+            super(id, posicao);
+            this.variavel = variavel;
+            this.valor = valor;
+        }
+
+        public String getVariavel() {
+            return variavel;
+        }
+
+        public Expressao getValor() {
+            return valor;
+        }
+    }
+
+    // LER variavel
+    public static final class Leitura extends Comando {
+        private final String variavel;
+
+        public Leitura(int id, int posicao, String variavel) {
+            super(id, posicao);
+            this.variavel = variavel;
+        }
+
+        public String getVariavel() {
+            return variavel;
+        }
+    }
+
+    // IMPRIMIR variavel | IMPRIMIR "cadeia": o valor é uma Variavel ou um Literal CADEIA
+    public static final class Impressao extends Comando {
+        private final Expressao valor;
+
+        public Impressao(int id, int posicao, Expressao valor) {
+            super(id, posicao);
+            this.valor = valor;
+        }
+
+        public Expressao getValor() {
+            return valor;
+        }
+    }
+
+    public static final class Se extends Comando {
+        private final Expressao condicao;
+        private final Comando entao;
+        private final Comando senao;   // null sem SENAO
+
+        public Se(int id, int posicao, Expressao condicao, Comando entao, Comando senao) {
+            super(id, posicao);
+            this.condicao = condicao;
+            this.entao = entao;
+            this.senao = senao;
+        }
+
+        public Expressao getCondicao() {
+            return condicao;
+        }
+
+        public Comando getEntao() {
+            return entao;
+        }
+
+        public Comando getSenao() {
+            return senao;
+        }
+    }
+
+    public static final class Enquanto extends Comando {
+        private final Expressao condicao;
+        private final Comando corpo;
+
+        public Enquanto(int id, int posicao, Expressao condicao, Comando corpo) {
+            super(id, posicao);
+            this.condicao = condicao;
+            this.corpo = corpo;
+        }
+
+        public Expressao getCondicao() {
+            return condicao;
+        }
+
+        public Comando getCorpo() {
+            return corpo;
+        }
+    }
+
+    // INICIO ... FINAL
+    public static final class Bloco extends Comando {
+        private final List<Comando> comandos;
+
+        public Bloco(int id, int posicao, List<Comando> comandos) {
+            super(id, posicao);
+            this.comandos = Collections.unmodifiableList(comandos);
+        }
+
+        public List<Comando> getComandos() {
+            return comandos;
+        }
+    }
+
+    // --- Expressões ---
+
+    public abstract static class Expressao extends No {
+        Expressao(int id, int posicao) {
+            super(id, posicao);
+        }
+    }
+
+    public static final class OperacaoBinaria extends Expressao {
+        private final Operador operador;
+        private final Expressao esquerda;
+        private final Expressao direita;
+
+        public OperacaoBinaria(int id, Operador operador, Expressao esquerda, Expressao direita) {
+            super(id, esquerda.getPosicao());
+            this.operador = operador;
+            this.esquerda = esquerda;
+            this.direita = direita;
+        }
+
+        public Operador getOperador() {
+            return operador;
+        }
+
+        public Expressao getEsquerda() {
+            return esquerda;
+        }
+
+        public Expressao getDireita() {
+            return direita;
+        }
+    }
+
+    public static final class Literal extends Expressao {
+        private final TipoLiteral tipo;
+        private final String texto;   // lexema, com as aspas no caso de CADEIA
+
+        public Literal(int id, int posicao, TipoLiteral tipo, String texto) {
+            super(id, posicao);
+            this.tipo = tipo;
+            this.texto = texto;
+        }
+
+        public TipoLiteral getTipo() {
+            return tipo;
+        }
+
+        public String getTexto() {
+            return texto;
+        }
+    }
+
+    public static final class Variavel extends Expressao {
+        private final String nome;
+
+        public Variavel(int id, int posicao, String nome) {
+            super(id, posicao);
+            this.nome = nome;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+    }
+
+    // Parênteses escritos no fonte, mantidos para que o código gerado seja o mesmo da árvore do ANTLR
+    public static final class Parenteses extends Expressao {
+        private final Expressao interna;
+
+        public Parenteses(int id, int posicao, Expressao interna) {
+            super(id, posicao);
+            this.interna = interna;
+        }
+
+        public Expressao getInterna() {
+            return interna;
+        }
+    }
+
+    /**
+     * Texto da expressão como ParserRuleContext.getText() na árvore original: os lexemas concatenados,
+     * sem espaços. Usa uma pilha própria porque cadeias longas como a + b + ... formam uma AST tão
+     * profunda quanto o número de operadores.
+     */
+    public static String texto(Expressao expressao) {
+        StringBuilder sb = new StringBuilder();
+        Deque<Object> pilha = new ArrayDeque<>();
+        pilha.push(expressao);
+        while (!pilha.isEmpty()) {
+            Object item = pilha.pop();
+            if (item instanceof String) {
+                sb.append((String) item);
+            } else if (item instanceof OperacaoBinaria) {
+                OperacaoBinaria op = (OperacaoBinaria) item;
+                pilha.push(op.getDireita());
+                pilha.push(op.getOperador().getSimbolo());
+                pilha.push(op.getEsquerda());
+            } else if (item instanceof Parenteses) {
+                pilha.push(")");
+                pilha.push(((Parenteses) item).getInterna());
+                pilha.push("(");
+            } else if (item instanceof Literal) {
+                sb.append(((Literal) item).getTexto());
+            } else {
+                sb.append(((Variavel) item).getNome());
+            }
+        }
+        return sb.toString();
+    }
+
+    // A expressão sem os parênteses externos
+    public static Expressao semParenteses(Expressao expressao) {
+        while (expressao instanceof Parenteses) {
+            expressao = ((Parenteses) expressao).getInterna();
+        }
+        return expressao;
+    }
+}
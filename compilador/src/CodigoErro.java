@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Códigos dos erros reportados pelo compilador, com a fase e o formato da mensagem de cada um.
+ * No formato, %1$s é o argumento do diagnóstico, %2$d a linha e %3$d a coluna; argumentos extras
+ * (ver Diagnostico) seguem a partir de %4$s.
+ */
+public enum CodigoErro {
+
+	// Erros léxicos
+	CADEIA_NAO_TERMINADA(Fase.LEXICA, "Cadeia não terminada antes do EOF (linha %2$d, coluna %3$d)"),
+	CARACTERE_INESPERADO(Fase.LEXICA, "Caractere inesperado: '%1$s' (linha %2$d, coluna %3$d)"),
+	IGUAL_ISOLADO(Fase.LEXICA, "'=' isolado não é válido. Use '==' para igualdade ou ':=' para atribuição. (linha %2$d, coluna %3$d)"),
+	EXCLAMACAO_ISOLADA(Fase.LEXICA, "'!' isolado não é válido. Use '!=' para diferente. (linha %2$d, coluna %3$d)"),
+	PALAVRA_DESCONHECIDA(Fase.LEXICA, "Palavra desconhecida: %1$s (linha %2$d, coluna %3$d)"),
+	UTF8_INVALIDO(Fase.LEXICA, "Cadeia com sequência UTF-8 inválida (linha %2$d, coluna %3$d)"),
+
+	// Erros sintáticos
+	TOKEN_ESPERADO(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d, coluna %3$d: Esperado token '%1$s', mas encontrou '%4$s' (Lexema: '%5$s')"),
+	CODIGO_APOS_FIM(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d, coluna %3$d: Código inesperado após o final do programa, iniciando com '%1$s'"),
+	TIPO_ESPERADO(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d: Esperado 'INTEGER' ou 'REAL', mas encontrou '%1$s'"),
+	COMANDO_INVALIDO(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d: Comando inválido. '%1$s' não inicia um comando."),
+	ARGUMENTO_IMPRIMIR(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d: Argumento inválido para 'IMPRIMIR'. Esperado VARIAVEL ou CADEIA, encontrou '%1$s'"),
+	FATOR_INVALIDO(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d: Fator aritmético inválido. Esperado Número, Variável ou '(', encontrou '%1$s'"),
+	OPERADOR_BOOLEANO_ESPERADO(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d: Operador booleano esperado ('E' ou 'OU'), encontrou '%1$s'"),
+	OPERADOR_RELACIONAL_ESPERADO(Fase.SINTATICA, "Erro de Sintaxe na linha %2$d: Operador relacional esperado (ex: '==', '>', '<='), encontrou '%1$s'"),
+
+	// Erros do GyhLangLexer e do GyhLangParser, com o texto que o GyhLangErrorListener sempre imprimiu;
+	// %1$s é o lexema (IDENTIFICADOR_INVALIDO) ou a mensagem do ANTLR
+	IDENTIFICADOR_INVALIDO(Fase.LEXICA, "ERRO LÉXICO na linha %2$d:%3$d - Identificador inválido '%1$s' (identificadores não podem começar com número)"),
+	TOKEN_NAO_RECONHECIDO(Fase.LEXICA, "ERRO SINTÁTICO na linha %2$d:%3$d - %1$s"),
+	SINTAXE_ANTLR(Fase.SINTATICA, "ERRO SINTÁTICO na linha %2$d:%3$d - %1$s"),
+
+	// Erros semânticos (AnalisadorSemantico): só a posição é conhecida; %1$s é a variável
+	VARIAVEL_JA_DECLARADA(Fase.SEMANTICA, "Erro Semântico: Variável '%1$s' já foi declarada anteriormente."),
+	VARIAVEL_NAO_DECLARADA(Fase.SEMANTICA, "Erro Semântico: Variável '%1$s' não foi declarada."),
+	ATRIBUICAO_INCOMPATIVEL(Fase.SEMANTICA, "Erro Semântico: Tentativa de atribuir %4$s à variável '%1$s' do tipo %5$s."),
+	CADEIA_EM_EXPRESSAO(Fase.SEMANTICA, "Erro Semântico: Cadeia de caracteres (String) não pode ser usada em expressão aritmética."),
+	COMPARACAO_COM_CADEIA(Fase.SEMANTICA, "Erro Semântico: Não é permitido comparar tipos incompatíveis (STRING com números).");
+
+	public enum Fase {
+		LEXICA, SINTATICA, SEMANTICA
+	}
+
+	private final Fase fase;
+	private final String formato;
+	// o formato já separado: trechos[i] é seguido do argumento de número argumentos[i] (0 = nenhum)
+	private final String[] trechos;
+	private final int[] argumentos;
+
+	CodigoErro(Fase fase, String formato) {
+		this.fase = fase;
+		this.formato = formato;
+		List<String> partes = new ArrayList<>();
+		List<Integer> numeros = new ArrayList<>();
+		int inicio = 0;
+		for (int i = formato.indexOf('%'); i >= 0; i = formato.indexOf('%', inicio)) {
+			int cifrao = formato.indexOf('$', i);
+			partes.add(formato.substring(inicio, i));
+			numeros.add(Integer.parseInt(formato.substring(i + 1, cifrao)));
+			inicio = cifrao + 2;    // pula a conversão (s ou d)
+		}
+		partes.add(formato.substring(inicio));
+		numeros.add(0);
+		trechos = partes.toArray(new String[0]);
+		argumentos = new int[numeros.size()];
+		for (int i = 0; i < argumentos.length; i++) {
+			argumentos[i] = numeros.get(i);
+		}
+	}
+
+	public Fase getFase() {
+		return fase;
+	}
+
+	public String getFormato() {
+		return formato;
+	}
+
+	/**
+	 * Acrescenta a 'sb' a mensagem, como String.format(getFormato(), argumento, linha, coluna, extras...),
+	 * mas sem analisar o formato a cada mensagem (os formatos só usam %n$s e %n$d).
+	 */
+	public void formatar(StringBuilder sb, String argumento, int linha, int coluna, Object[] extras) {
+		for (int i = 0; i < trechos.length; i++) {
+			sb.append(trechos[i]);
+			switch (argumentos[i]) {
+				case 0:
+					break;
+				case 1:
+					sb.append(argumento);
+					break;
+				case 2:
+					sb.append(linha);
+					break;
+				case 3:
+					sb.append(coluna);
+					break;
+				default:
+					sb.append(extras[argumentos[i] - 4]);
+			}
+		}
+	}
+}
@@ -2,9 +2,9 @@ public class CommandSaida extends Command {
     
     private String conteudo;
     private boolean isString;
-    private String tipo;
+    private TipoGyh tipo;
     
-    public CommandSaida(String conteudo, boolean isString, String tipo) {
+    public CommandSaida(String conteudo, boolean isString, TipoGyh tipo) {
         this.conteudo = conteudo;
         this.isString = isString;
         this.tipo = tipo;
@@ -17,8 +17,7 @@ public class CommandSaida extends Command {
             String texto = conteudo.substring(1, conteudo.length() - 1);
             return "printf(\"" + texto + "\\n\");";
         } else {
-            String formato = tipo.equals("INTEGER") ? "%d" : "%lf";
-            return "printf(\"" + formato + "\\n\", " + conteudo + ");";
+            return "printf(\"" + tipo.getFormato() + "\\n\", " + conteudo + ");";
         }
     }
 }
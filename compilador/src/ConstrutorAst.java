@@ -0,0 +1,171 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Converte a árvore do GyhLangParser na AstGyh.
+ *
+ * Só deve receber árvores sem erros sintáticos (como a análise semântica no Main): com a recuperação de
+ * erros do ANTLR os contextos podem ter filhos faltando. As regras recursivas à esquerda (expressões
+ * aritméticas, termos e expressões relacionais) geram cadeias tão profundas quanto o número de operadores,
+ * então são desmontadas com uma pilha em vez de recursão.
+ */
+public class ConstrutorAst {
+
+    // uma só String por nome de variável, em vez de uma por ocorrência
+    private final Map<String, String> nomes = new HashMap<>();
+    private int proximoId;
+
+    public static AstGyh.Programa construir(GyhLangParser.ProgramaContext ctx) {
+        return new ConstrutorAst().programa(ctx);
+    }
+
+    private AstGyh.Programa programa(GyhLangParser.ProgramaContext ctx) {
+        List<AstGyh.Declaracao> declaracoes = new ArrayList<>();
+        for (GyhLangParser.DeclaracaoContext d : ctx.listaDeclaracoes().declaracao()) {
+            declaracoes.add(new AstGyh.Declaracao(id(), posicao(d), nome(d.Var()),
+                    TipoGyh.valueOf(d.tipoVar().getText())));
+        }
+        List<AstGyh.Comando> comandos = comandos(ctx.listaComandos());
+        int id = id();
+        return new AstGyh.Programa(id, posicao(ctx), declaracoes, comandos, proximoId);
+    }
+
+    private List<AstGyh.Comando> comandos(GyhLangParser.ListaComandosContext ctx) {
+        List<GyhLangParser.ComandoContext> filhos = ctx.comando();
+        List<AstGyh.Comando> comandos = new ArrayList<>(filhos.size());
+        for (GyhLangParser.ComandoContext c : filhos) {
+            comandos.add(comando(c));
+        }
+        return comandos;
+    }
+
+    private AstGyh.Comando comando(GyhLangParser.ComandoContext ctx) {
+        if (ctx.comandoAtribuicao() != null) {
+            GyhLangParser.ComandoAtribuicaoContext c = ctx.comandoAtribuicao();
+            return new AstGyh.Atribuicao(id(), posicao(c), nome(c.Var()), expressao(c.expressaoAritmetica()));
+        }
+        if (ctx.comandoEntrada() != null) {
+            GyhLangParser.ComandoEntradaContext c = ctx.comandoEntrada();
+            return new AstGyh.Leitura(id(), posicao(c), nome(c.Var()));
+        }
+        if (ctx.comandoSaida() != null) {
+            GyhLangParser.ComandoSaidaContext c = ctx.comandoSaida();
+            AstGyh.Expressao valor = c.Var() != null
+                    ? new AstGyh.Variavel(id(), posicao(c.Var()), nome(c.Var()))
+                    : new AstGyh.Literal(id(), posicao(c.String()), AstGyh.TipoLiteral.CADEIA,
+                            c.String().getText());
+            return new AstGyh.Impressao(id(), posicao(c), valor);
+        }
+        if (ctx.comandoCondicao() != null) {
+            GyhLangParser.ComandoCondicaoContext c = ctx.comandoCondicao();
+            AstGyh.Comando senao = c.SENAO() != null ? comando(c.comando(1)) : null;
+            return new AstGyh.Se(id(), posicao(c), condicao(c.expressaoRelacional()), comando(c.comando(0)),
+                    senao);
+        }
+        if (ctx.comandoRepeticao() != null) {
+            GyhLangParser.ComandoRepeticaoContext c = ctx.comandoRepeticao();
+            return new AstGyh.Enquanto(id(), posicao(c), condicao(c.expressaoRelacional()), comando(c.comando()));
+        }
+        GyhLangParser.SubAlgoritmoContext c = ctx.subAlgoritmo();
+        return new AstGyh.Bloco(id(), posicao(c), comandos(c.listaComandos()));
+    }
+
+    // expressaoRelacional : expressaoRelacional operadorBooleano termoRelacional | termoRelacional
+    private AstGyh.Expressao condicao(GyhLangParser.ExpressaoRelacionalContext ctx) {
+        Deque<GyhLangParser.ExpressaoRelacionalContext> espinha = new ArrayDeque<>();
+        while (ctx.expressaoRelacional() != null) {
+            espinha.push(ctx);
+            ctx = ctx.expressaoRelacional();
+        }
+        AstGyh.Expressao resultado = termoRelacional(ctx.termoRelacional());
+        while (!espinha.isEmpty()) {
+            GyhLangParser.ExpressaoRelacionalContext pai = espinha.pop();
+            AstGyh.Operador op = AstGyh.Operador.deSimbolo(pai.operadorBooleano().getText());
+            resultado = new AstGyh.OperacaoBinaria(id(), op, resultado, termoRelacional(pai.termoRelacional()));
+        }
+        return resultado;
+    }
+
+    // termoRelacional : expressaoAritmetica OpRel expressaoAritmetica | '(' expressaoRelacional ')'
+    private AstGyh.Expressao termoRelacional(GyhLangParser.TermoRelacionalContext ctx) {
+        if (ctx.expressaoRelacional() != null) {
+            return new AstGyh.Parenteses(id(), posicao(ctx), condicao(ctx.expressaoRelacional()));
+        }
+        AstGyh.Operador op = AstGyh.Operador.deSimbolo(ctx.OpRel().getText());
+        return new AstGyh.OperacaoBinaria(id(), op, expressao(ctx.expressaoAritmetica(0)),
+                expressao(ctx.expressaoAritmetica(1)));
+    }
+
+    // expressaoAritmetica : expressaoAritmetica ('+' | '-') termoAritmetico | termoAritmetico
+    private AstGyh.Expressao expressao(GyhLangParser.ExpressaoAritmeticaContext ctx) {
+        Deque<GyhLangParser.ExpressaoAritmeticaContext> espinha = new ArrayDeque<>();
+        while (ctx.expressaoAritmetica() != null) {
+            espinha.push(ctx);
+            ctx = ctx.expressaoAritmetica();
+        }
+        AstGyh.Expressao resultado = termo(ctx.termoAritmetico());
+        while (!espinha.isEmpty()) {
+            GyhLangParser.ExpressaoAritmeticaContext pai = espinha.pop();
+            AstGyh.Operador op = AstGyh.Operador.deSimbolo(pai.getChild(1).getText());
+            resultado = new AstGyh.OperacaoBinaria(id(), op, resultado, termo(pai.termoAritmetico()));
+        }
+        return resultado;
+    }
+
+    // termoAritmetico : termoAritmetico ('*' | '/') fatorAritmetico | fatorAritmetico
+    private AstGyh.Expressao termo(GyhLangParser.TermoAritmeticoContext ctx) {
+        Deque<GyhLangParser.TermoAritmeticoContext> espinha = new ArrayDeque<>();
+        while (ctx.termoAritmetico() != null) {
+            espinha.push(ctx);
+            ctx = ctx.termoAritmetico();
+        }
+        AstGyh.Expressao resultado = fator(ctx.fatorAritmetico());
+        while (!espinha.isEmpty()) {
+            GyhLangParser.TermoAritmeticoContext pai = espinha.pop();
+            AstGyh.Operador op = AstGyh.Operador.deSimbolo(pai.getChild(1).getText());
+            resultado = new AstGyh.OperacaoBinaria(id(), op, resultado, fator(pai.fatorAritmetico()));
+        }
+        return resultado;
+    }
+
+    private AstGyh.Expressao fator(GyhLangParser.FatorAritmeticoContext ctx) {
+        if (ctx.NumInt() != null) {
+            return new AstGyh.Literal(id(), posicao(ctx), AstGyh.TipoLiteral.INTEIRO, ctx.NumInt().getText());
+        }
+        if (ctx.NumReal() != null) {
+            return new AstGyh.Literal(id(), posicao(ctx), AstGyh.TipoLiteral.REAL, ctx.NumReal().getText());
+        }
+        if (ctx.String() != null) {
+            return new AstGyh.Literal(id(), posicao(ctx), AstGyh.TipoLiteral.CADEIA, ctx.String().getText());
+        }
+        if (ctx.Var() != null) {
+            return new AstGyh.Variavel(id(), posicao(ctx), nome(ctx.Var()));
+        }
+        return new AstGyh.Parenteses(id(), posicao(ctx), expressao(ctx.expressaoAritmetica()));
+    }
+
+    private String nome(TerminalNode var) {
+        String nome = var.getText();
+        String existente = nomes.putIfAbsent(nome, nome);
+        return existente != null ? existente : nome;
+    }
+
+    private int id() {
+        return proximoId++;
+    }
+
+    private static int posicao(ParserRuleContext ctx) {
+        return ctx.getStart().getStartIndex();
+    }
+
+    private static int posicao(TerminalNode no) {
+        return no.getSymbol().getStartIndex();
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Um erro encontrado durante a análise: código (que determina a fase), posição e argumentos (ex.: o
+ * lexema problemático). A mensagem só é montada quando alguém a pede.
+ */
+public class Diagnostico {
+
+	private final CodigoErro codigo;
+	private final int posicao;        // índice do primeiro caractere no fonte, ou -1 se desconhecido
+	private final int linha;          // 0 quando só a posição é conhecida
+	private final int coluna;
+	private final String argumento;
+	private final Object[] extras;    // argumentos a partir de %4$s no formato
+
+	public Diagnostico(CodigoErro codigo, int linha, int coluna, String argumento, Object... extras) {
+		this(codigo, -1, linha, coluna, argumento, extras);
+	}
+
+	public Diagnostico(CodigoErro codigo, int posicao, int linha, int coluna, String argumento,
+			Object... extras) {
+		this.codigo = codigo;
+		this.posicao = posicao;
+		this.linha = linha;
+		this.coluna = coluna;
+		this.argumento = argumento;
+		this.extras = extras;
+	}
+
+	// Diagnóstico localizado só pela posição no fonte (os semânticos, que também vêm da AstGyh)
+	public static Diagnostico naPosicao(CodigoErro codigo, int posicao, String argumento, Object... extras) {
+		return new Diagnostico(codigo, posicao, 0, 0, argumento, extras);
+	}
+
+	public String getMensagem() {
+		StringBuilder sb = new StringBuilder();
+		acrescentarMensagem(sb);
+		return sb.toString();
+	}
+
+	// Acrescenta a mensagem a 'sb', sem criar uma String só para ela
+	public void acrescentarMensagem(StringBuilder sb) {
+		codigo.formatar(sb, argumento, linha, coluna, extras);
+	}
+
+	@Override
+	public String toString() {
+		return getMensagem();
+	}
+
+	public CodigoErro getCodigo() {
+		return codigo;
+	}
+
+	public CodigoErro.Fase getFase() {
+		return codigo.getFase();
+	}
+
+	public int getPosicao() {
+		return posicao;
+	}
+
+	public int getLinha() {
+		return linha;
+	}
+
+	public int getColuna() {
+		return coluna;
+	}
+
+	public String getArgumento() {
+		return argumento;
+	}
+}
@@ -1,7 +1,9 @@
+import java.util.concurrent.ForkJoinPool;
+
 import org.antlr.v4.runtime.CharStream;
-import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
 public class Main {
@@ -10,24 +12,43 @@ public class Main {
 		
 		System.out.println("========== ANALISADOR GYH ==========\n");
 		
-		// Lê o arquivo de entrada
-		CharStream input = CharStreams.fromFileName("src/Testess/L1.gyh");
+		// DFAs de decisão gravados por SnapshotDfa (-Dgyh.snapshotDfa=arquivo), se houver
+		SnapshotDfa.carregarPadrao();
+		
+		// Mapeia o arquivo de entrada (o conteúdo não é copiado para o heap)
+		CharStream input = CharStreamMapeado.abrir("src/Testess/L1.gyh");
+		
+		// Erros de todas as fases; -Dgyh.maxErros=N interrompe a análise no N-ésimo
+		Diagnosticos diagnosticos = new Diagnosticos();
 		
 		// ========== ANÁLISE LÉXICA ==========
 		System.out.println("Iniciando análise léxica...");
 		GyhLangLexer lexer = new GyhLangLexer(input);
+		lexer.setTokenFactory(FabricaTokens.PADRAO);
 		
 		// Remove listeners padrão para usar o customizado
 		lexer.removeErrorListeners();
-		GyhLangErrorListener errorLexer = new GyhLangErrorListener();
+		GyhLangErrorListener errorLexer = new GyhLangErrorListener(diagnosticos);
 		lexer.addErrorListener(errorLexer);
 		
 		CommonTokenStream tokens = new CommonTokenStream(lexer);
-		tokens.fill(); // Força a tokenização completa
+		try {
+			if (Boolean.getBoolean("gyh.lexicoParalelo")) {
+				// -Dgyh.lexicoParalelo=true: a entrada é cortada em linhas e os pedaços tokenizados em paralelo
+				ForkJoinPool pool = ForkJoinPool.commonPool();
+				tokens = LexicoParaleloAntlr.tokenizar(input, pool.getParallelism(), pool, errorLexer);
+			} else {
+				tokens.fill(); // Força a tokenização completa
+			}
+		} catch (Diagnosticos.LimiteAtingido e) {
+			// parou no limite de erros
+		}
 		
 		// Verifica erros léxicos
 		if (errorLexer.temErros()) {
+			diagnosticos.imprimir(System.err, "");
 			System.out.println("ERRO: Análise léxica falhou!\n");
+			avisarLimite(diagnosticos);
 			return;
 		}
 		System.out.println("Análise léxica concluída sem erros!\n");
@@ -36,26 +57,66 @@ public class Main {
 		System.out.println("Iniciando análise sintática...");
 		GyhLangParser parser = new GyhLangParser(tokens);
 		
-		// Adiciona error listener no parser também
-		parser.removeErrorListeners();
-		GyhLangErrorListener errorParser = new GyhLangErrorListener();
-		parser.addErrorListener(errorParser);
-		
-		ParseTree tree = parser.programa();
+		// Adiciona error listener no parser também (usado só se a fase SLL falhar)
+		GyhLangErrorListener errorParser = new GyhLangErrorListener(diagnosticos);
+		ParsingDuasFases parsing = ParsingDuasFases.padrao();
+		ParseTree tree = null;
+		try {
+			tree = parsing.analisar(parser, errorParser);
+		} catch (Diagnosticos.LimiteAtingido e) {
+			// parou no limite de erros
+		}
 		
 		// Verifica erros sintáticos
 		if (parser.getNumberOfSyntaxErrors() > 0) {
+			diagnosticos.imprimir(System.err, "");
 			System.out.println("ERRO: Análise sintática falhou!");
 			System.out.println("Foram encontrados " + parser.getNumberOfSyntaxErrors() + " erro(s) sintático(s).\n");
+			avisarLimite(diagnosticos);
 			return;
 		}
-		System.out.println("Análise sintática concluída sem erros!\n");
+		System.out.println("Análise sintática concluída sem erros! (predição " + parsing.getModoUsado() + ")\n");
+		
+		// -Dgyh.ast=true: a árvore vira uma AstGyh e ela, os tokens e o parser são descartados
+		AstGyh.Programa ast = null;
+		if (Boolean.getBoolean("gyh.ast")) {
+			ast = ConstrutorAst.construir((GyhLangParser.ProgramaContext) tree);
+			tree = null;
+			parser = null;
+			tokens = null;
+			lexer = null;
+			input = null;
+		}
 		
 		// ========== ANÁLISE SEMÂNTICA ==========
 		System.out.println("Iniciando análise semântica...");
-		AnalisadorSemantico analisador = new AnalisadorSemantico();
-		ParseTreeWalker walker = new ParseTreeWalker();
-		walker.walk(analisador, tree);
+		AnalisadorSemantico analisador = new AnalisadorSemantico(diagnosticos);
+		GeradorCodigo gerador = new GeradorCodigo(analisador.getTabelaSimbolos(), analisador.getTipos());
+		// percorre a árvore com uma pilha no heap: SE/ENQTO/INICIO profundos não estouram a pilha da thread
+		ParseTreeWalker walker = new IterativeParseTreeWalker();
+		// um só percurso para as duas fases; -Dgyh.duasPassadas=true percorre a árvore uma vez para cada
+		CompiladorFundido fundido = null;
+		try {
+			if (Boolean.getBoolean("gyh.semanticaParalela")) {
+				// -Dgyh.semanticaParalela=true: comandos de [PROGRAMA] verificados em paralelo; a geração vem depois
+				ForkJoinPool pool = ForkJoinPool.commonPool();
+				int partes = pool.getParallelism() * 4;
+				if (ast != null) {
+					analisador.analisarParalelo(ast, partes, pool);
+				} else {
+					analisador.analisarParalelo((GyhLangParser.ProgramaContext) tree, partes, pool);
+				}
+			} else if (ast != null) {
+				analisador.analisar(ast);
+			} else if (CompiladorFundido.duasPassadas()) {
+				walker.walk(analisador, tree);
+			} else {
+				fundido = new CompiladorFundido(analisador, gerador);
+				walker.walk(fundido, tree);
+			}
+		} catch (Diagnosticos.LimiteAtingido e) {
+			// parou no limite de erros
+		}
 		
 		// Exibe a tabela de símbolos
 		analisador.imprimirTabelaSimbolos();
@@ -64,9 +125,8 @@ public class Main {
 		if (analisador.temErros()) {
 			System.out.println("ERROS SEMÂNTICOS ENCONTRADOS:");
 			System.out.println("========================================");
-			for (String erro : analisador.getErros()) {
-				System.out.println("  • " + erro);
-			}
+			diagnosticos.imprimir(System.out, "  • ", CodigoErro.Fase.SEMANTICA);
+			avisarLimite(diagnosticos);
 			System.out.println("========================================\n");
 			System.out.println("========================================");
 			System.out.println("   PROGRAMA COM ERROS!");
@@ -78,8 +138,16 @@ public class Main {
 		
 		// ========== GERAÇÃO DE CÓDIGO ==========
 		System.out.println("Iniciando geração de código...");
-		GeradorCodigo gerador = new GeradorCodigo(analisador.getTabelaSimbolos());
-		walker.walk(gerador, tree);
+		if (ast != null) {
+			gerador.gerar(ast);
+		} else if (fundido != null) {
+			// os comandos já foram gerados junto com a análise semântica
+			if (fundido.getFalhaGeracao() != null) {
+				throw fundido.getFalhaGeracao();
+			}
+		} else {
+			walker.walk(gerador, tree);
+		}
 		
 		String codigoCGerado = gerador.gerarCodigoC();
 		System.out.println("Geração de código concluída!\n");
@@ -103,6 +171,14 @@ public class Main {
 		System.out.println("========================================");
 	}
 	
+	// Avisa quando a análise parou no limite de -Dgyh.maxErros e pode haver outros erros
+	private static void avisarLimite(Diagnosticos diagnosticos) {
+		if (diagnosticos.isLimiteAtingido()) {
+			System.out.println("(análise interrompida no limite de " + diagnosticos.getLimite()
+					+ " erros, -Dgyh.maxErros)");
+		}
+	}
+	
 
 
 
@@ -0,0 +1,75 @@
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * Análise sintática do GyhLangParser em duas fases.
+ *
+ * A primeira tenta PredictionMode.SLL com BailErrorStrategy: sem contexto completo a predição é bem
+ * mais barata (comandoCondicao tem duas alternativas com o prefixo SE expressaoRelacional ENTAO comando),
+ * e o primeiro erro cancela a análise em vez de tentar recuperar. Só se ela falhar o fluxo volta ao
+ * início e é analisado de novo em LL completo, com o listener e a recuperação normais; assim os erros
+ * reportados e a árvore são os mesmos do modo LL direto.
+ */
+public class ParsingDuasFases {
+
+    public enum Modo {
+        LL,         // só LL completo, como o GyhLangParser faz por padrão
+        SLL_LL      // SLL primeiro, LL só se o SLL falhar
+    }
+
+    private final Modo modo;
+    private PredictionMode modoUsado;
+
+    public ParsingDuasFases(Modo modo) {
+        this.modo = modo;
+    }
+
+    /**
+     * Modo escolhido pela propriedade de sistema gyh.parsing ("ll" ou "sll-ll"); o padrão é SLL_LL.
+     */
+    public static ParsingDuasFases padrao() {
+        String valor = System.getProperty("gyh.parsing", "sll-ll");
+        return new ParsingDuasFases(valor.equalsIgnoreCase("ll") ? Modo.LL : Modo.SLL_LL);
+    }
+
+    /**
+     * Analisa o programa inteiro. Os erros sintáticos vão para 'listener' e ficam contados em
+     * parser.getNumberOfSyntaxErrors(), como em uma chamada direta a parser.programa().
+     */
+    public GyhLangParser.ProgramaContext analisar(GyhLangParser parser, ANTLRErrorListener listener) {
+        parser.removeErrorListeners();
+        if (modo == Modo.SLL_LL) {
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            try {
+                GyhLangParser.ProgramaContext arvore = parser.programa();
+                // 'programa' não termina em EOF: o SLL pode parar antes do fim onde o LL continuaria
+                if (parser.getInputStream().LA(1) == Token.EOF) {
+                    modoUsado = PredictionMode.SLL;
+                    return arvore;
+                }
+            } catch (ParseCancellationException e) {
+                // erro de sintaxe de verdade ou falso conflito do SLL: o LL decide
+            }
+            parser.reset();
+        }
+        parser.addErrorListener(listener);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        modoUsado = PredictionMode.LL;
+        return parser.programa();
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    // Predição que produziu a árvore no último analisar(): SLL ou LL
+    public PredictionMode getModoUsado() {
+        return modoUsado;
+    }
+}
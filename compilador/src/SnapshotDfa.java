@@ -0,0 +1,406 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNConfig;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.ATNSimulator;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.ArrayPredictionContext;
+import org.antlr.v4.runtime.atn.PredictionContext;
+import org.antlr.v4.runtime.atn.SemanticContext;
+import org.antlr.v4.runtime.atn.SingletonPredictionContext;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.dfa.DFAState;
+
+/**
+ * Grava e carrega os DFAs de decisão aprendidos pelo GyhLangParser.
+ *
+ * Um processo novo começa com os DFAs vazios e reconstrói cada estado pela simulação do ATN, o que
+ * domina a latência de uma compilação curta. Depois de analisar um corpus representativo, os estados
+ * (configurações do ATN, contextos de predição, arestas e predições) são gravados em um arquivo;
+ * um processo seguinte os carrega no decisionToDFA compartilhado antes do primeiro parse.
+ *
+ * O arquivo guarda o hash do ATN serializado do GyhLangParser e é recusado se a gramática mudou.
+ * Só o parser é gravado: o DFA do lexer se aquece em poucos tokens.
+ *
+ * Uso: java SnapshotDfa saida.dfa arquivo.gyh|pasta...   (analisa os arquivos e grava o snapshot)
+ */
+public class SnapshotDfa {
+
+    private static final int MAGICO = 0x47594844;   // "GYHD"
+    private static final int VERSAO = 1;
+
+    // contexto vazio, estado de erro e pai nulo (em contextos de contexto completo)
+    private static final int VAZIO = 0;
+    private static final int ERRO = -1;
+    private static final int NULO = -1;
+
+    private static final int SINGLETON = 1;
+    private static final int ARRAY = 2;
+
+    private static final int SEM_NENHUM = 0;
+    private static final int SEM_PRECEDENCIA = 1;
+    private static final int SEM_PREDICADO = 2;
+    private static final int SEM_E = 3;
+    private static final int SEM_OU = 4;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Uso: java SnapshotDfa saida.dfa arquivo.gyh|pasta...");
+            return;
+        }
+        List<File> arquivos = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) listar(new File(args[i]), arquivos);
+
+        // os dois modos: o SLL e o LL deixam estados diferentes nos mesmos DFAs
+        ContextoCompilacao contexto = ContextoCompilacao.atual();
+        BaseErrorListener silencioso = new BaseErrorListener();
+        for (File arquivo : arquivos) {
+            for (ParsingDuasFases.Modo modo : ParsingDuasFases.Modo.values()) {
+                contexto.tokenizar(CharStreams.fromFileName(arquivo.getPath()), silencioso);
+                new ParsingDuasFases(modo).analisar(contexto.parser(), silencioso);
+            }
+        }
+        int estados = salvar(args[0]);
+        System.out.println(arquivos.size() + " arquivos analisados, " + estados + " estados gravados em " + args[0]);
+    }
+
+    private static void listar(File arquivo, List<File> saida) {
+        File[] filhos = arquivo.listFiles();
+        if (filhos == null) {
+            saida.add(arquivo);
+            return;
+        }
+        Arrays.sort(filhos);
+        for (File filho : filhos) {
+            if (filho.isDirectory() || filho.getName().endsWith(".gyh")) listar(filho, saida);
+        }
+    }
+
+    /**
+     * Carrega o snapshot indicado pela propriedade de sistema gyh.snapshotDfa, se houver.
+     * Um snapshot ausente ou de outra gramática só é avisado; a análise segue com os DFAs vazios.
+     */
+    public static void carregarPadrao() {
+        String arquivo = System.getProperty("gyh.snapshotDfa");
+        if (arquivo == null) return;
+        try {
+            int estados = carregar(arquivo);
+            System.out.println("Snapshot de DFA carregado: " + estados + " estados (" + arquivo + ")\n");
+        } catch (IOException e) {
+            System.out.println("Snapshot de DFA ignorado: " + e.getMessage() + "\n");
+        }
+    }
+
+    // DFAs compartilhados por todas as instâncias do GyhLangParser
+    private static DFA[] dfas() {
+        return new GyhLangParser(null).getInterpreter().decisionToDFA;
+    }
+
+    /**
+     * Grava os DFAs atuais do GyhLangParser e devolve o número de estados gravados.
+     */
+    public static int salvar(String arquivo) throws IOException {
+        DFA[] dfas = dfas();
+        Map<PredictionContext, Integer> contextos = new IdentityHashMap<>();
+        List<PredictionContext> ordem = new ArrayList<>();
+        contextos.put(PredictionContext.EMPTY, VAZIO);
+        ordem.add(PredictionContext.EMPTY);
+        for (DFA dfa : dfas) {
+            for (DFAState estado : dfa.states.keySet()) {
+                for (ATNConfig config : estado.configs) registrar(config.context, contextos, ordem);
+            }
+        }
+
+        int total = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo)))) {
+            out.writeInt(MAGICO);
+            out.writeInt(VERSAO);
+            out.writeInt(GyhLangParser._serializedATN.hashCode());
+
+            // contextos, cada pai antes dos filhos
+            out.writeInt(ordem.size());
+            for (int i = 1; i < ordem.size(); i++) {
+                PredictionContext ctx = ordem.get(i);
+                out.writeByte(ctx instanceof ArrayPredictionContext ? ARRAY : SINGLETON);
+                if (ctx instanceof ArrayPredictionContext) out.writeInt(ctx.size());
+                for (int j = 0; j < ctx.size(); j++) {
+                    PredictionContext pai = ctx.getParent(j);
+                    out.writeInt(pai == null ? NULO : contextos.get(pai));
+                    out.writeInt(ctx.getReturnState(j));
+                }
+            }
+
+            out.writeInt(dfas.length);
+            for (DFA dfa : dfas) {
+                List<DFAState> estados = new ArrayList<>(dfa.states.keySet());
+                Map<DFAState, Integer> indices = new IdentityHashMap<>();
+                for (int i = 0; i < estados.size(); i++) indices.put(estados.get(i), i);
+
+                out.writeInt(estados.size());
+                for (DFAState estado : estados) {
+                    escreverConfiguracoes(out, estado.configs, contextos);
+                    out.writeBoolean(estado.isAcceptState);
+                    out.writeInt(estado.prediction);
+                    out.writeBoolean(estado.requiresFullContext);
+                    out.writeInt(estado.predicates == null ? -1 : estado.predicates.length);
+                    if (estado.predicates != null) {
+                        for (DFAState.PredPrediction predicao : estado.predicates) {
+                            escreverSemantico(out, predicao.pred);
+                            out.writeInt(predicao.alt);
+                        }
+                    }
+                }
+                for (DFAState estado : estados) {
+                    escreverArestas(out, estado.edges, indices);
+                }
+                if (dfa.isPrecedenceDfa()) {
+                    escreverArestas(out, dfa.s0.edges, indices);
+                } else {
+                    out.writeInt(dfa.s0 == null ? ERRO : indices.get(dfa.s0));
+                }
+                total += estados.size();
+            }
+        }
+        return total;
+    }
+
+    // Numera 'ctx' depois dos seus pais
+    private static void registrar(PredictionContext ctx, Map<PredictionContext, Integer> contextos,
+                                  List<PredictionContext> ordem) {
+        if (ctx == null || contextos.containsKey(ctx)) return;
+        for (int i = 0; i < ctx.size(); i++) registrar(ctx.getParent(i), contextos, ordem);
+        contextos.put(ctx, ordem.size());
+        ordem.add(ctx);
+    }
+
+    private static void escreverConfiguracoes(DataOutputStream out, ATNConfigSet configs,
+                                              Map<PredictionContext, Integer> contextos) throws IOException {
+        out.writeBoolean(configs.fullCtx);
+        out.writeInt(configs.uniqueAlt);
+        out.writeBoolean(configs.dipsIntoOuterContext);
+        BitSet conflitantes = ConjuntoConfiguracoes.conflitantes(configs);
+        long[] bits = conflitantes == null ? null : conflitantes.toLongArray();
+        out.writeInt(bits == null ? -1 : bits.length);
+        if (bits != null) {
+            for (long b : bits) out.writeLong(b);
+        }
+        out.writeInt(configs.size());
+        for (ATNConfig config : configs) {
+            out.writeInt(config.state.stateNumber);
+            out.writeInt(config.alt);
+            out.writeInt(contextos.get(config.context));
+            out.writeInt(config.reachesIntoOuterContext);
+            escreverSemantico(out, config.semanticContext);
+        }
+    }
+
+    // Predicados de precedência das regras com recursão à esquerda (expressões), e combinações deles
+    private static void escreverSemantico(DataOutputStream out, SemanticContext semantico) throws IOException {
+        if (semantico == SemanticContext.NONE) {
+            out.writeByte(SEM_NENHUM);
+        } else if (semantico instanceof SemanticContext.PrecedencePredicate) {
+            out.writeByte(SEM_PRECEDENCIA);
+            out.writeInt(((SemanticContext.PrecedencePredicate) semantico).precedence);
+        } else if (semantico instanceof SemanticContext.Predicate) {
+            SemanticContext.Predicate predicado = (SemanticContext.Predicate) semantico;
+            out.writeByte(SEM_PREDICADO);
+            out.writeInt(predicado.ruleIndex);
+            out.writeInt(predicado.predIndex);
+            out.writeBoolean(predicado.isCtxDependent);
+        } else {
+            SemanticContext.Operator operador = (SemanticContext.Operator) semantico;
+            out.writeByte(operador instanceof SemanticContext.AND ? SEM_E : SEM_OU);
+            out.writeInt(operador.getOperands().size());
+            for (SemanticContext operando : operador.getOperands()) escreverSemantico(out, operando);
+        }
+    }
+
+    private static SemanticContext lerSemantico(DataInputStream in) throws IOException {
+        int tipo = in.readByte();
+        switch (tipo) {
+            case SEM_NENHUM:
+                return SemanticContext.NONE;
+            case SEM_PRECEDENCIA:
+                return new SemanticContext.PrecedencePredicate(in.readInt());
+            case SEM_PREDICADO:
+                return new SemanticContext.Predicate(in.readInt(), in.readInt(), in.readBoolean());
+            default:
+                int quantidade = in.readInt();
+                SemanticContext resultado = lerSemantico(in);
+                for (int i = 1; i < quantidade; i++) {
+                    SemanticContext operando = lerSemantico(in);
+                    resultado = tipo == SEM_E ? SemanticContext.and(resultado, operando)
+                                              : SemanticContext.or(resultado, operando);
+                }
+                return resultado;
+        }
+    }
+
+    private static void escreverArestas(DataOutputStream out, DFAState[] arestas,
+                                        Map<DFAState, Integer> indices) throws IOException {
+        int quantidade = 0;
+        if (arestas != null) {
+            for (DFAState alvo : arestas) if (alvo != null) quantidade++;
+        }
+        out.writeInt(arestas == null ? 0 : arestas.length);
+        out.writeInt(quantidade);
+        if (arestas == null) return;
+        for (int i = 0; i < arestas.length; i++) {
+            if (arestas[i] == null) continue;
+            out.writeInt(i);
+            out.writeInt(arestas[i] == ATNSimulator.ERROR ? ERRO : indices.get(arestas[i]));
+        }
+    }
+
+    /**
+     * Substitui os DFAs do GyhLangParser pelos do arquivo e devolve o número de estados carregados.
+     * Deve ser chamado antes de qualquer parse, ou entre parses (os estados aprendidos até ali se perdem).
+     */
+    public static int carregar(String arquivo) throws IOException {
+        ATN atn = GyhLangParser._ATN;
+        DFA[] dfas = dfas();
+        int total = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+            if (in.readInt() != MAGICO || in.readInt() != VERSAO) {
+                throw new IOException("formato desconhecido");
+            }
+            if (in.readInt() != GyhLangParser._serializedATN.hashCode()) {
+                throw new IOException("snapshot gravado com outra versão da gramática");
+            }
+
+            PredictionContext[] contextos = new PredictionContext[in.readInt()];
+            contextos[VAZIO] = PredictionContext.EMPTY;
+            for (int i = 1; i < contextos.length; i++) {
+                int tamanho = in.readByte() == ARRAY ? in.readInt() : 1;
+                PredictionContext[] pais = new PredictionContext[tamanho];
+                int[] retornos = new int[tamanho];
+                for (int j = 0; j < tamanho; j++) {
+                    int pai = in.readInt();
+                    pais[j] = pai == NULO ? null : contextos[pai];
+                    retornos[j] = in.readInt();
+                }
+                contextos[i] = tamanho == 1 && pais[0] != null
+                        ? SingletonPredictionContext.create(pais[0], retornos[0])
+                        : new ArrayPredictionContext(pais, retornos);
+            }
+
+            if (in.readInt() != dfas.length) throw new IOException("número de decisões diferente");
+            DFA[] novos = new DFA[dfas.length];
+            for (int d = 0; d < dfas.length; d++) {
+                DFA dfa = new DFA(atn.getDecisionState(d), d);
+                DFAState[] estados = new DFAState[in.readInt()];
+                for (int i = 0; i < estados.length; i++) {
+                    DFAState estado = new DFAState(lerConfiguracoes(in, atn, contextos));
+                    estado.isAcceptState = in.readBoolean();
+                    estado.prediction = in.readInt();
+                    estado.requiresFullContext = in.readBoolean();
+                    int predicados = in.readInt();
+                    if (predicados >= 0) {
+                        estado.predicates = new DFAState.PredPrediction[predicados];
+                        for (int j = 0; j < predicados; j++) {
+                            estado.predicates[j] = new DFAState.PredPrediction(lerSemantico(in), in.readInt());
+                        }
+                    }
+                    estado.stateNumber = i;
+                    dfa.states.put(estado, estado);
+                    estados[i] = estado;
+                }
+                for (DFAState estado : estados) {
+                    estado.edges = lerArestas(in, estados);
+                }
+                if (dfa.isPrecedenceDfa()) {
+                    DFAState[] inicios = lerArestas(in, estados);
+                    if (inicios != null) {
+                        for (int p = 0; p < inicios.length; p++) {
+                            if (inicios[p] != null) dfa.setPrecedenceStartState(p, inicios[p]);
+                        }
+                    }
+                } else {
+                    int s0 = in.readInt();
+                    dfa.s0 = s0 == ERRO ? null : estados[s0];
+                }
+                novos[d] = dfa;
+                total += estados.length;
+            }
+            // só troca depois de ler tudo: um arquivo truncado não deixa DFAs pela metade
+            System.arraycopy(novos, 0, dfas, 0, dfas.length);
+        }
+        return total;
+    }
+
+    private static ATNConfigSet lerConfiguracoes(DataInputStream in, ATN atn, PredictionContext[] contextos)
+            throws IOException {
+        ConjuntoConfiguracoes configs = new ConjuntoConfiguracoes(in.readBoolean());
+        int unico = in.readInt();
+        boolean foraDoContexto = in.readBoolean();
+        int palavras = in.readInt();
+        if (palavras >= 0) {
+            long[] bits = new long[palavras];
+            for (int i = 0; i < palavras; i++) bits[i] = in.readLong();
+            configs.setConflitantes(BitSet.valueOf(bits));
+        }
+        int quantidade = in.readInt();
+        for (int i = 0; i < quantidade; i++) {
+            ATNState estadoAtn = atn.states.get(in.readInt());
+            int alternativa = in.readInt();
+            PredictionContext contexto = contextos[in.readInt()];
+            int foraDoContextoConfig = in.readInt();
+            ATNConfig config = new ATNConfig(estadoAtn, alternativa, contexto, lerSemantico(in));
+            config.reachesIntoOuterContext = foraDoContextoConfig;
+            configs.add(config);
+        }
+        configs.uniqueAlt = unico;
+        configs.dipsIntoOuterContext = foraDoContexto;
+        configs.setReadonly(true);
+        return configs;
+    }
+
+    private static DFAState[] lerArestas(DataInputStream in, DFAState[] estados) throws IOException {
+        int tamanho = in.readInt();
+        int quantidade = in.readInt();
+        if (tamanho == 0) return null;
+        DFAState[] arestas = new DFAState[tamanho];
+        for (int i = 0; i < quantidade; i++) {
+            int simbolo = in.readInt();
+            int alvo = in.readInt();
+            arestas[simbolo] = alvo == ERRO ? ATNSimulator.ERROR : estados[alvo];
+        }
+        return arestas;
+    }
+
+    // Dá acesso a ATNConfigSet.conflictingAlts, que entra no equals dos estados do DFA
+    private static class ConjuntoConfiguracoes extends ATNConfigSet {
+
+        ConjuntoConfiguracoes(boolean fullCtx) {
+            super(fullCtx);
+        }
+
+        void setConflitantes(BitSet conflitantes) {
+            conflictingAlts = conflitantes;
+        }
+
+        static BitSet conflitantes(ATNConfigSet configs) {
+            return new ConjuntoConfiguracoes(configs).conflictingAlts;
+        }
+
+        private ConjuntoConfiguracoes(ATNConfigSet origem) {
+            super(origem);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+/**
+ * Tabela de símbolos com identificadores inteiros: cada variável declarada recebe o próximo id (0, 1, 2...)
+ * e nome e tipo ficam em vetores indexados por ele.
+ *
+ * O nome só é procurado uma vez por ocorrência, num índice de endereçamento aberto que guarda os ids
+ * (sem Integer nem Map.Entry); a partir do id, tipo e nome são acessos diretos a vetor. A ordem dos ids
+ * é a ordem de declaração, usada para imprimir a tabela e declarar as variáveis no código C.
+ *
+ * Depois de congelar() a tabela não muda mais e pode ser lida por várias threads ao mesmo tempo (modo
+ * paralelo do AnalisadorSemantico).
+ */
+public class TabelaSimbolos {
+
+    public static final int AUSENTE = -1;
+
+    private String[] nomes = new String[16];
+    private TipoGyh[] tipos = new TipoGyh[16];
+    private int[] hashes = new int[16];
+    private int[] indice = new int[32];  // id + 1 em cada posição; 0 é posição livre
+    private int quantidade;
+    private boolean congelada;
+
+    /**
+     * Declara 'nome' e devolve o id dele, ou AUSENTE se o nome já estava declarado.
+     */
+    public int declarar(String nome, TipoGyh tipo) {
+        if (congelada) {
+            throw new IllegalStateException("Tabela de símbolos congelada: '" + nome + "' não pode ser declarada");
+        }
+        int hash = espalhar(nome.hashCode());
+        if (buscar(nome, hash) != AUSENTE) {
+            return AUSENTE;
+        }
+        if (quantidade == nomes.length) {
+            nomes = Arrays.copyOf(nomes, quantidade * 2);
+            tipos = Arrays.copyOf(tipos, quantidade * 2);
+            hashes = Arrays.copyOf(hashes, quantidade * 2);
+        }
+        int id = quantidade++;
+        nomes[id] = nome;
+        tipos[id] = tipo;
+        hashes[id] = hash;
+        if (quantidade * 2 > indice.length) {
+            indice = new int[indice.length * 2];
+            for (int i = 0; i < quantidade; i++) {
+                inserir(i);
+            }
+        } else {
+            inserir(id);
+        }
+        return id;
+    }
+
+    // Id de 'nome', ou AUSENTE se não foi declarado
+    public int buscar(String nome) {
+        return buscar(nome, espalhar(nome.hashCode()));
+    }
+
+    private int buscar(String nome, int hash) {
+        int mascara = indice.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int id = indice[i] - 1;
+            if (id < 0) return AUSENTE;
+            if (hashes[id] == hash && nomes[id].equals(nome)) return id;
+        }
+    }
+
+    private void inserir(int id) {
+        int mascara = indice.length - 1;
+        int i = hashes[id] & mascara;
+        while (indice[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        indice[i] = id + 1;
+    }
+
+    private static int espalhar(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    public String getNome(int id) {
+        return nomes[id];
+    }
+
+    public TipoGyh getTipo(int id) {
+        return tipos[id];
+    }
+
+    public int tamanho() {
+        return quantidade;
+    }
+
+    public boolean isEmpty() {
+        return quantidade == 0;
+    }
+
+    // Impede novas declarações; a partir daqui a tabela só é lida
+    public void congelar() {
+        congelada = true;
+    }
+
+    public boolean isCongelada() {
+        return congelada;
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeProperty;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Tipos anotados por nó pela análise semântica, para que cada um seja calculado uma vez e depois só lido.
+ *
+ * São anotados os fatores, termos e expressões aritméticas (de baixo para cima, a partir dos filhos já
+ * anotados) e os comandos de atribuição, leitura e impressão de variável, com o tipo da variável; um
+ * comando com variável não declarada fica sem anotação. O GeradorCodigo lê daqui os tipos de LER e
+ * IMPRIMIR em vez de procurar o nome de novo na tabela de símbolos.
+ *
+ * Na árvore do ANTLR as anotações ficam numa ParseTreeProperty; na AstGyh, num vetor indexado pelo id
+ * do nó, com um byte por nó. Nenhuma das duas é sincronizada: no modo paralelo do AnalisadorSemantico
+ * cada pedaço anota a árvore numa TabelaTipos própria, acrescentada depois com incorporar(), e na AstGyh
+ * os pedaços escrevem em posições diferentes do vetor já reservado. As anotações incorporadas não são
+ * copiadas para um só mapa (isso custaria mais que anotar a árvore inteira em sequência): cada pedaço
+ * cobre um trecho contínuo de tokens, e get() procura o nó só no pedaço dono do seu primeiro token
+ * (busca binária nos inícios dos pedaços). Depois das anotações, get() só lê e pode ser chamado de
+ * várias threads.
+ */
+public class TabelaTipos {
+
+    private static final TipoGyh[] TIPOS = TipoGyh.values();
+
+    private ParseTreeProperty<TipoGyh> arvore = new ParseTreeProperty<>();
+    private final List<TabelaTipos> pedacos = new ArrayList<>();   // incorporados, na ordem do fonte
+    private int[] iniciosPedacos = new int[0];                       // índice do primeiro token de cada um
+    private byte[] ast = new byte[0];   // ordinal + 1; 0 é nó sem tipo
+
+    public void definir(ParseTree no, TipoGyh tipo) {
+        arvore.put(no, tipo);
+    }
+
+    // Tipo anotado em 'no', ou null
+    public TipoGyh get(ParseTree no) {
+        TipoGyh tipo = arvore.get(no);
+        if (tipo != null || pedacos.isEmpty()) {
+            return tipo;
+        }
+        // o pedaço dono é o último que começa antes (ou no) primeiro token do nó
+        int p = Arrays.binarySearch(iniciosPedacos, 0, pedacos.size(), primeiroToken(no));
+        if (p < 0) {
+            p = -p - 2;
+        }
+        return p >= 0 ? pedacos.get(p).arvore.get(no) : null;
+    }
+
+    private static int primeiroToken(ParseTree no) {
+        if (no instanceof ParserRuleContext) {
+            Token inicio = ((ParserRuleContext) no).getStart();
+            return inicio != null ? inicio.getTokenIndex() : -1;
+        }
+        return ((TerminalNode) no).getSymbol().getTokenIndex();
+    }
+
+    // Descarta as anotações da árvore do ANTLR (o CompiladorStreaming chama a cada comando)
+    public void limpar() {
+        arvore = new ParseTreeProperty<>();
+        pedacos.clear();
+    }
+
+    // Acrescenta as anotações da árvore feitas em 'outra' (um pedaço do modo paralelo, que só anotou nós
+    // a partir do token 'primeiroToken' e antes do primeiro token do pedaço seguinte), depois das já
+    // incorporadas
+    public void incorporar(TabelaTipos outra, int primeiroToken) {
+        if (pedacos.size() == iniciosPedacos.length) {
+            iniciosPedacos = Arrays.copyOf(iniciosPedacos, Math.max(8, iniciosPedacos.length * 2));
+        }
+        iniciosPedacos[pedacos.size()] = primeiroToken;
+        pedacos.add(outra);
+    }
+
+    // Reserva espaço para os nós de uma AST com 'quantidade' nós
+    public void reservar(int quantidade) {
+        if (quantidade > ast.length) {
+            ast = Arrays.copyOf(ast, quantidade);
+        }
+    }
+
+    public void definir(AstGyh.No no, TipoGyh tipo) {
+        int id = no.getId();
+        if (id >= ast.length) {
+            reservar(Math.max(id + 1, ast.length * 2));
+        }
+        ast[id] = (byte) (tipo.ordinal() + 1);
+    }
+
+    // Tipo anotado em 'no', ou null
+    public TipoGyh get(AstGyh.No no) {
+        int id = no.getId();
+        return id < ast.length && ast[id] != 0 ? TIPOS[ast[id] - 1] : null;
+    }
+}
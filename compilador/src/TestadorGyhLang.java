@@ -1,21 +1,24 @@
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import java.io.File;
 import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
 
 public class TestadorGyhLang {
     
     private static final String PASTA_TESTES = "src/Testess";
     private List<ResultadoTeste> resultados;
+    private ParsingDuasFases parsing;
     
     public TestadorGyhLang() {
         this.resultados = new ArrayList<>();
+        this.parsing = ParsingDuasFases.padrao();
     }
     
     public static void main(String[] args) throws Exception {
+        SnapshotDfa.carregarPadrao();
         TestadorGyhLang testador = new TestadorGyhLang();
         testador.executarTodosTestes();
         testador.exibirRelatorio();
@@ -62,17 +65,22 @@ public class TestadorGyhLang {
         ResultadoTeste resultado = new ResultadoTeste(nomeArquivo);
         
         try {
-            // Lê o arquivo
-            CharStream input = CharStreams.fromPath(Paths.get(arquivo.getAbsolutePath()));
+            // Mapeia o arquivo
+            CharStream input = CharStreamMapeado.abrir(arquivo.getAbsolutePath());
             
-            // ========== ANÁLISE LÉXICA ==========
-            GyhLangLexer lexer = new GyhLangLexer(input);
-            lexer.removeErrorListeners();
-            GyhLangErrorListener errorLexer = new GyhLangErrorListener();
-            lexer.addErrorListener(errorLexer);
+            // erros de todas as fases do arquivo, impressos de uma vez ao fim de cada fase
+            Diagnosticos diagnosticos = new Diagnosticos();
             
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            tokens.fill();
+            // ========== ANÁLISE LÉXICA ==========
+            // lexer e parser da thread, reaproveitados entre os arquivos
+            ContextoCompilacao contexto = ContextoCompilacao.atual();
+            GyhLangErrorListener errorLexer = new GyhLangErrorListener(diagnosticos);
+            try {
+                contexto.tokenizar(input, errorLexer);
+            } catch (Diagnosticos.LimiteAtingido e) {
+                // parou no limite de -Dgyh.maxErros
+            }
+            diagnosticos.imprimir(System.err, "");
             
             if (errorLexer.temErros()) {
                 resultado.setResultadoLexico("❌ FALHOU");
@@ -82,12 +90,16 @@ public class TestadorGyhLang {
                 resultado.setResultadoLexico("✓ OK");
                 
                 // ========== ANÁLISE SINTÁTICA ==========
-                GyhLangParser parser = new GyhLangParser(tokens);
-                parser.removeErrorListeners();
-                GyhLangErrorListener errorParser = new GyhLangErrorListener();
-                parser.addErrorListener(errorParser);
-                
-                ParseTree tree = parser.programa();
+                GyhLangParser parser = contexto.parser();
+                GyhLangErrorListener errorParser = new GyhLangErrorListener(diagnosticos);
+                ParseTree tree = null;
+                try {
+                    tree = parsing.analisar(parser, errorParser);
+                } catch (Diagnosticos.LimiteAtingido e) {
+                    // parou no limite de -Dgyh.maxErros
+                }
+                resultado.setModoParsing(String.valueOf(parsing.getModoUsado()));
+                diagnosticos.imprimir(System.err, "");
                 
                 if (parser.getNumberOfSyntaxErrors() > 0) {
                     resultado.setResultadoSintatico("❌ FALHOU");
@@ -97,9 +109,21 @@ public class TestadorGyhLang {
                     resultado.setResultadoSintatico("✓ OK");
                     
                     // ========== ANÁLISE SEMÂNTICA ==========
-                    AnalisadorSemantico analisador = new AnalisadorSemantico();
-                    ParseTreeWalker walker = new ParseTreeWalker();
-                    walker.walk(analisador, tree);
+                    AnalisadorSemantico analisador = new AnalisadorSemantico(diagnosticos);
+                    GeradorCodigo gerador = new GeradorCodigo(analisador.getTabelaSimbolos(), analisador.getTipos());
+                    ParseTreeWalker walker = new IterativeParseTreeWalker();
+                    // um só percurso gera o código junto com a análise (ver CompiladorFundido)
+                    CompiladorFundido fundido = null;
+                    try {
+                        if (CompiladorFundido.duasPassadas()) {
+                            walker.walk(analisador, tree);
+                        } else {
+                            fundido = new CompiladorFundido(analisador, gerador);
+                            walker.walk(fundido, tree);
+                        }
+                    } catch (Diagnosticos.LimiteAtingido e) {
+                        // parou no limite de -Dgyh.maxErros
+                    }
                     
                     if (analisador.temErros()) {
                         resultado.setResultadoSemantico("❌ FALHOU");
@@ -111,9 +135,11 @@ public class TestadorGyhLang {
                         
                         // ========== GERAÇÃO DE CÓDIGO ==========
                         try {
-                            GeradorCodigo gerador = new GeradorCodigo(analisador.getTabelaSimbolos());
-                            ParseTreeWalker walker2 = new ParseTreeWalker();
-                            walker2.walk(gerador, tree);
+                            if (fundido == null) {
+                                walker.walk(gerador, tree);
+                            } else if (fundido.getFalhaGeracao() != null) {
+                                throw fundido.getFalhaGeracao();
+                            }
                             
                             String codigoC = gerador.gerarCodigoC();
                             System.out.println(codigoC);
@@ -143,6 +169,7 @@ public class TestadorGyhLang {
     private void exibirResultadoTeste(ResultadoTeste resultado) {
         System.out.println("  Léxica:     " + resultado.getResultadoLexico());
         System.out.println("  Sintática:  " + resultado.getResultadoSintatico());
+        System.out.println("  Predição:   " + resultado.getModoParsing());
         System.out.println("  Semântica:  " + resultado.getResultadoSemantico());
         System.out.println("  Geração:    " + resultado.getResultadoGeracao());
         System.out.println("  Status:     " + resultado.getStatusFinal());
@@ -170,6 +197,8 @@ public class TestadorGyhLang {
         int falhasSintatico = 0;
         int falhasSemantico = 0;
         int falhasGeracao = 0;
+        int parsingSll = 0;
+        int parsingLl = 0;
         
         // Conta os resultados
         for (ResultadoTeste resultado : resultados) {
@@ -184,6 +213,11 @@ public class TestadorGyhLang {
             } else {
                 falhasGeracao++;
             }
+            if ("SLL".equals(resultado.getModoParsing())) {
+                parsingSll++;
+            } else if ("LL".equals(resultado.getModoParsing())) {
+                parsingLl++;
+            }
         }
         
         // Exibe estatísticas
@@ -193,14 +227,15 @@ public class TestadorGyhLang {
         System.out.println("Falhas Sintáticas:      " + falhasSintatico);
         System.out.println("Falhas Semânticas:      " + falhasSemantico);
         System.out.println("Falhas na Geração:      " + falhasGeracao);
+        System.out.println("Parsing (" + parsing.getModo() + "): SLL " + parsingSll + ", LL " + parsingLl);
         
         System.out.println("\n========== DETALHES DOS TESTES ==========\n");
         
         // Exibe detalhes de cada teste
         for (ResultadoTeste resultado : resultados) {
             String icone = resultado.getStatusFinal().equals("SUCESSO") ? "✓" : "✗";
-            System.out.println(String.format("%s %-15s → %s", icone, resultado.getNomeArquivo(), 
-                             resultado.getStatusFinal()));
+            System.out.println(String.format("%s %-15s %-4s → %s", icone, resultado.getNomeArquivo(), 
+                             resultado.getModoParsing(), resultado.getStatusFinal()));
         }
         
         System.out.println("\n=====================================\n");
@@ -223,6 +258,7 @@ public class TestadorGyhLang {
         private String resultadoSintatico;
         private String resultadoSemantico;
         private String resultadoGeracao;
+        private String modoParsing;
         private String statusFinal;
         private boolean erroLexico;
         private boolean erroSintaxico;
@@ -235,6 +271,7 @@ public class TestadorGyhLang {
             this.resultadoSintatico = "⏳ PENDENTE";
             this.resultadoSemantico = "⏳ PENDENTE";
             this.resultadoGeracao = "⏳ PENDENTE";
+            this.modoParsing = "-";
             this.statusFinal = "PENDENTE";
             this.errosSemantcos = new ArrayList<>();
         }
@@ -249,6 +286,8 @@ public class TestadorGyhLang {
         public void setResultadoSemantico(String valor) { this.resultadoSemantico = valor; }
         public String getResultadoGeracao() { return resultadoGeracao; }
         public void setResultadoGeracao(String valor) { this.resultadoGeracao = valor; }
+        public String getModoParsing() { return modoParsing; }
+        public void setModoParsing(String valor) { this.modoParsing = valor; }
         public String getStatusFinal() { return statusFinal; }
         public void setStatusFinal(String valor) { this.statusFinal = valor; }
         public boolean isErroLexico() { return erroLexico; }
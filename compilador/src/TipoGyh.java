@@ -0,0 +1,40 @@
+/**
+ * Tipos da linguagem GYH. INTEGER e REAL são os tipos das variáveis; STRING só aparece como tipo de uma
+ * expressão que usa uma cadeia, o que já é um erro semântico.
+ *
+ * Os nomes das constantes são os da linguagem e aparecem nas mensagens de erro e na tabela de símbolos.
+ */
+public enum TipoGyh {
+    INTEGER("int", "%d"),
+    REAL("double", "%lf"),
+    STRING(null, null);
+
+    private final String tipoC;
+    private final String formato;
+
+    TipoGyh(String tipoC, String formato) {
+        this.tipoC = tipoC;
+        this.formato = formato;
+    }
+
+    // Tipo da variável no código C gerado
+    public String getTipoC() {
+        return tipoC;
+    }
+
+    // Formato de scanf/printf
+    public String getFormato() {
+        return formato;
+    }
+
+    // Tipo de uma operação aritmética: REAL se algum operando for REAL, INTEGER caso contrário
+    public TipoGyh combinar(TipoGyh outro) {
+        return this == REAL || outro == REAL ? REAL : INTEGER;
+    }
+
+    // Se uma variável deste tipo pode receber um valor do tipo 'valor': REAL recebe qualquer um
+    // (uma cadeia já foi reportada na expressão), INTEGER só recebe INTEGER
+    public boolean aceita(TipoGyh valor) {
+        return this == REAL || (this == INTEGER && valor == INTEGER);
+    }
+}
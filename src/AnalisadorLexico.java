@@ -1,22 +1,66 @@
 import java.io.IOException;
-import java.util.Hashtable;
-import java.util.Map;
 
-public class AnalisadorLexico {
+public class AnalisadorLexico implements FonteTokens {
 
 
 	private LeitorArquivo ldat;
-	private Map<String, TipoToken> palavrasReservadas; // inclui palavras-chave e operadores booleanos
-	private Map<Character, TipoToken> tokensSimples;   // tokens de 1 caractere
 	private boolean eofEmitido = false;                 // controla emissão única de EOF
 
+	// Modo de recuperação: em vez de lançar exceção no primeiro erro, reporta um Diagnostico,
+	// emite um token Erro e continua a partir do próximo caractere
+	private boolean modoRecuperacao = false;
+	private Diagnosticos diagnosticos = new Diagnosticos();
+
+	// Grafia das palavras reservadas (inclui operadores booleanos), indexada pelo ordinal do TipoToken
+	private static final char[][] PALAVRAS = new char[TipoToken.values().length][];
+	// Tokens de 1 caractere, indexados diretamente pelo código ASCII
+	private static final TipoToken[] TOKENS_SIMPLES = new TipoToken[128];
+
+	static {
+		inicializarTabelas();
+	}
+
 	public AnalisadorLexico(String nomeArq) throws IOException {
 
 		ldat = new LeitorArquivo(nomeArq);
-		inicializarTabelas();
 
 	}
 
+	// leituraMapeada = true: lê o fonte inteiro em memória (ver LeitorArquivo) em vez de usar BufferedReader
+	public AnalisadorLexico(String nomeArq, boolean leituraMapeada) throws IOException {
+
+		ldat = new LeitorArquivo(nomeArq, leituraMapeada);
+
+	}
+
+	public AnalisadorLexico(LeitorArquivo ldat) {
+
+		this.ldat = ldat;
+
+	}
+
+	public boolean isModoRecuperacao() {
+		return modoRecuperacao;
+	}
+
+	public void setModoRecuperacao(boolean modoRecuperacao) {
+		this.modoRecuperacao = modoRecuperacao;
+	}
+
+	// Erros reportados no modo de recuperação, na ordem do fonte
+	public Diagnosticos getDiagnosticos() {
+		return diagnosticos;
+	}
+
+	// Reporta os erros em 'diagnosticos' (ex.: os mesmos do AnalisadorSintatico)
+	public void setDiagnosticos(Diagnosticos diagnosticos) {
+		this.diagnosticos = diagnosticos;
+	}
+
+	public boolean temErros() {
+		return diagnosticos.temErros(CodigoErro.Fase.LEXICA);
+	}
+
 	public LeitorArquivo getLdat() {
 	    return ldat;
 	}
@@ -25,35 +69,73 @@ public class AnalisadorLexico {
 	    this.ldat = ldat;
 	}
 
-	private void inicializarTabelas() {
-		palavrasReservadas = new Hashtable<>();
+	private static void inicializarTabelas() {
 		// Palavras-chave
-		palavrasReservadas.put("DECLARAR", TipoToken.PCDec);
-		palavrasReservadas.put("PROGRAMA", TipoToken.PCProg);
-		palavrasReservadas.put("INTEGER", TipoToken.PCInt);
-		palavrasReservadas.put("REAL", TipoToken.PCReal);
-		palavrasReservadas.put("LER", TipoToken.PCLer);
-		palavrasReservadas.put("IMPRIMIR", TipoToken.PCImprimir);
-		palavrasReservadas.put("SE", TipoToken.PCSe);
-		palavrasReservadas.put("ENTAO", TipoToken.PCEntao);
-		palavrasReservadas.put("SENAO", TipoToken.PCSenao);
-		palavrasReservadas.put("ENQTO", TipoToken.PCEnqto);
-		palavrasReservadas.put("INICIO", TipoToken.PCIni);
-		palavrasReservadas.put("FINAL", TipoToken.PCFim);
+		PALAVRAS[TipoToken.PCDec.ordinal()] = "DECLARAR".toCharArray();
+		PALAVRAS[TipoToken.PCProg.ordinal()] = "PROGRAMA".toCharArray();
+		PALAVRAS[TipoToken.PCInt.ordinal()] = "INTEGER".toCharArray();
+		PALAVRAS[TipoToken.PCReal.ordinal()] = "REAL".toCharArray();
+		PALAVRAS[TipoToken.PCLer.ordinal()] = "LER".toCharArray();
+		PALAVRAS[TipoToken.PCImprimir.ordinal()] = "IMPRIMIR".toCharArray();
+		PALAVRAS[TipoToken.PCSe.ordinal()] = "SE".toCharArray();
+		PALAVRAS[TipoToken.PCEntao.ordinal()] = "ENTAO".toCharArray();
+		PALAVRAS[TipoToken.PCSenao.ordinal()] = "SENAO".toCharArray();
+		PALAVRAS[TipoToken.PCEnqto.ordinal()] = "ENQTO".toCharArray();
+		PALAVRAS[TipoToken.PCIni.ordinal()] = "INICIO".toCharArray();
+		PALAVRAS[TipoToken.PCFim.ordinal()] = "FINAL".toCharArray();
 		// Operadores booleanos como palavras
-		palavrasReservadas.put("E", TipoToken.OpBoolE);
-		palavrasReservadas.put("OU", TipoToken.OpBoolOu);
+		PALAVRAS[TipoToken.OpBoolE.ordinal()] = "E".toCharArray();
+		PALAVRAS[TipoToken.OpBoolOu.ordinal()] = "OU".toCharArray();
 
-		tokensSimples = new Hashtable<>();
-		tokensSimples.put('*', TipoToken.OpAritMult);
-		tokensSimples.put('/', TipoToken.OpAritDiv);
-		tokensSimples.put('+', TipoToken.OpAritSoma);
-		tokensSimples.put('-', TipoToken.OpAritSub);
-		tokensSimples.put('[', TipoToken.DelimAbre);
-		tokensSimples.put(']', TipoToken.DelimFecha);
-		tokensSimples.put('(', TipoToken.AbrePar);
-		tokensSimples.put(')', TipoToken.FechaPar);
-		tokensSimples.put(':', TipoToken.DelimDoisPontos); // observar ":=" abaixo
+		TOKENS_SIMPLES['*'] = TipoToken.OpAritMult;
+		TOKENS_SIMPLES['/'] = TipoToken.OpAritDiv;
+		TOKENS_SIMPLES['+'] = TipoToken.OpAritSoma;
+		TOKENS_SIMPLES['-'] = TipoToken.OpAritSub;
+		TOKENS_SIMPLES['['] = TipoToken.DelimAbre;
+		TOKENS_SIMPLES[']'] = TipoToken.DelimFecha;
+		TOKENS_SIMPLES['('] = TipoToken.AbrePar;
+		TOKENS_SIMPLES[')'] = TipoToken.FechaPar;
+		TOKENS_SIMPLES[':'] = TipoToken.DelimDoisPontos; // observar ":=" abaixo
+	}
+
+	/**
+	 * Reconhece uma palavra em MAIÚSCULAS direto no vetor de chars, sem criar String.
+	 * O tamanho e a primeira letra (e, entre ENTAO/ENQTO, a terceira) escolhem o único candidato possível,
+	 * que depois é conferido char a char.
+	 * @return o TipoToken da palavra reservada, ou null se não for uma.
+	 */
+	static TipoToken reconhecerPalavra(char[] buf, int ini, int tam) {
+		TipoToken candidato;
+		char c0 = buf[ini];
+		switch (tam) {
+			case 1: candidato = TipoToken.OpBoolE; break;
+			case 2: candidato = c0 == 'S' ? TipoToken.PCSe : TipoToken.OpBoolOu; break;
+			case 3: candidato = TipoToken.PCLer; break;
+			case 4: candidato = TipoToken.PCReal; break;
+			case 5:
+				if (c0 == 'S') candidato = TipoToken.PCSenao;
+				else if (c0 == 'F') candidato = TipoToken.PCFim;
+				else candidato = buf[ini + 2] == 'Q' ? TipoToken.PCEnqto : TipoToken.PCEntao;
+				break;
+			case 6: candidato = TipoToken.PCIni; break;
+			case 7: candidato = TipoToken.PCInt; break;
+			case 8:
+				if (c0 == 'D') candidato = TipoToken.PCDec;
+				else if (c0 == 'P') candidato = TipoToken.PCProg;
+				else candidato = TipoToken.PCImprimir;
+				break;
+			default: return null;
+		}
+		char[] grafia = PALAVRAS[candidato.ordinal()];
+		for (int i = 0; i < tam; i++) {
+			if (buf[ini + i] != grafia[i]) return null;
+		}
+		return candidato;
+	}
+
+	// Token de 1 caractere, ou null
+	static TipoToken tokenSimples(int c) {
+		return c >= 0 && c < TOKENS_SIMPLES.length ? TOKENS_SIMPLES[c] : null;
 	}
 
 	private int lerChar() throws IOException {
@@ -65,6 +147,13 @@ public class AnalisadorLexico {
 	}
 
 	private void pularEspacos() throws IOException {
+		if (ldat.isMapeado()) {
+			// caminho rápido: varre o vetor do fonte em blocos
+			ldat.pularBrancos();
+			return;
+		}
+		// o lexema anterior já terminou: brancos e comentários não são gravados
+		ldat.encerrarLexema();
 		int c;
 		while (true) {
 			c = lerChar();
@@ -92,39 +181,129 @@ public class AnalisadorLexico {
 	private static boolean ehLetraMaiuscula(int c) { return c >= 'A' && c <= 'Z'; }
 	private static boolean ehDigito(int c) { return c >= '0' && c <= '9'; }
 
+	// posição do último token reconhecido por escanear(), guardada só no modo com BufferedReader;
+	// no modo mapeado ela é calculada a partir do offset quando alguém pede (ver TabelaLinhas)
+	private int linhaToken;
+	private int colunaToken;
+
 	public Token proxToken() throws Exception {
 		if (eofEmitido) return null;
 
+		TipoToken tipo = escanear();
+		String lexema = tipo == TipoToken.EOF ? "" : ldat.getLexemaAtual();
+		return new Token(lexema, tipo, linhaDoToken(), colunaDoToken());
+	}
+
+	/**
+	 * Reconhece o próximo token sem criar objetos e devolve o seu tipo (null depois do EOF).
+	 * Início e tamanho do lexema ficam em getInicioToken()/getTamanhoToken().
+	 */
+	@Override
+	public TipoToken proxTipo() throws Exception {
+		if (eofEmitido) return null;
+		return escanear();
+	}
+
+	// Offset do primeiro char do último token reconhecido
+	@Override
+	public int getInicioToken() {
+		return ldat.getInicioLexema();
+	}
+
+	@Override
+	public int getTamanhoToken() {
+		return ldat.getTamanhoLexema();
+	}
+
+	@Override
+	public int getLinhaToken() {
+		return linhaDoToken();
+	}
+
+	@Override
+	public int getColunaToken() {
+		return colunaDoToken();
+	}
+
+	@Override
+	public String getLexemaToken() {
+		return ldat.getLexemaAtual();
+	}
+
+	@Override
+	public char[] getBufferLexemaToken() {
+		return ldat.getBufferLexema();
+	}
+
+	@Override
+	public int getInicioBufferLexemaToken() {
+		return ldat.getInicioBufferLexema();
+	}
+
+	@Override
+	public LeitorArquivo getLeitorIndexado() {
+		return ldat.isMapeado() ? ldat : null;
+	}
+
+	private int linhaDoToken() {
+		return ldat.isMapeado() ? ldat.getTabelaLinhas().linha(ldat.getInicioLexema()) : linhaToken;
+	}
+
+	private int colunaDoToken() {
+		return ldat.isMapeado() ? ldat.getTabelaLinhas().coluna(ldat.getInicioLexema()) : colunaToken;
+	}
+
+	/**
+	 * Tokeniza o arquivo inteiro em um BufferTokens, sem criar objetos Token nem Strings de lexema.
+	 * Exige o modo de leitura mapeado, pois os lexemas são recuperados depois a partir do fonte.
+	 */
+	public BufferTokens tokenizar() throws Exception {
+		if (!ldat.isMapeado()) {
+			throw new IllegalStateException("tokenizar() exige o modo de leitura mapeado");
+		}
+		BufferTokens tokens = new BufferTokens(ldat);
+		while (!eofEmitido) {
+			TipoToken tipo = escanear();
+			tokens.adicionar(tipo, ldat.getInicioLexema(), ldat.getTamanhoLexema());
+		}
+		return tokens;
+	}
+
+	/**
+	 * Reconhece o próximo token e devolve o seu tipo. O lexema fica delimitado no leitor
+	 * (marcarLexema/getLexemaAtual); a posição, em linhaDoToken()/colunaDoToken().
+	 */
+	private TipoToken escanear() throws Exception {
 		pularEspacos();
+		ldat.marcarLexema();
 		int c = lerChar();
-		int startLinha = ldat.getLinhaAtual();
-		int startColuna = ldat.getColunaAtual();
+		if (!ldat.isMapeado()) {
+			linhaToken = ldat.getLinhaAtual();
+			colunaToken = ldat.getColunaAtual();
+		}
 
 		if (c == -1) {
 			eofEmitido = true;
-			return new Token("", TipoToken.EOF, startLinha, startColuna);
+			return TipoToken.EOF;
 		}
 
 		// Strings: "..."
 		if (c == '"') {
-			StringBuilder sb = new StringBuilder();
-			sb.append('"');
 			int d;
 			while ((d = lerChar()) != -1 && d != '"') {
-				sb.append((char)d);
+				// consome
 			}
 			if (d == '"') {
-				sb.append('"');
-				return new Token(sb.toString(), TipoToken.Cadeia, startLinha, startColuna);
+				// no modo UTF-8 só o conteúdo das cadeias é validado
+				if (!ldat.lexemaUtf8Valido()) return erro(CodigoErro.UTF8_INVALIDO, null);
+				return TipoToken.Cadeia;
 			}
-			throw new Exception("Cadeia não terminada antes do EOF (linha " + startLinha + ", coluna " + startColuna + ")");
+			return erro(CodigoErro.CADEIA_NAO_TERMINADA, null);
 		}
 
 		// Números: inteiro ou real (um ponto opcional)
 		if (ehDigito(c)) {
-			StringBuilder sb = new StringBuilder();
 			boolean temPonto = false;
-			sb.append((char)c);
 			int d;
 			while (true) {
 				d = lerChar();
@@ -134,88 +313,93 @@ public class AnalisadorLexico {
 						break;
 					}
 					temPonto = true;
-					sb.append('.');
 					continue;
 				}
 				if (!ehDigito(d)) { devolverChar(d); break; }
-				sb.append((char)d);
 			}
-			return new Token(sb.toString(), temPonto ? TipoToken.NumReal : TipoToken.NumInt, startLinha, startColuna);
+			return temPonto ? TipoToken.NumReal : TipoToken.NumInt;
 		}
 
 		// Identificadores/Palavras: distinguindo minúsculas (Var) de MAIÚSCULAS (reservadas/booleanos)
 		if (ehLetraMinuscula(c)) {
-			StringBuilder sb = new StringBuilder();
-			sb.append((char)c);
 			int d;
 			while (true) {
 				d = lerChar();
-				if (ehLetraMaiuscula(d) || ehLetraMinuscula(d) || ehDigito(d)) {
-					sb.append((char)d);
-				} else {
+				if (!(ehLetraMaiuscula(d) || ehLetraMinuscula(d) || ehDigito(d))) {
 					devolverChar(d);
 					break;
 				}
 			}
-			return new Token(sb.toString(), TipoToken.Var, startLinha, startColuna);
+			return TipoToken.Var;
 		}
 		if (ehLetraMaiuscula(c)) {
-			StringBuilder sb = new StringBuilder();
-			sb.append((char)c);
 			int d;
 			while (true) {
 				d = lerChar();
-				if (ehLetraMaiuscula(d)) {
-					sb.append((char)d);
-				} else {
+				if (!ehLetraMaiuscula(d)) {
 					devolverChar(d);
 					break;
 				}
 			}
-			String palavra = sb.toString();
-			TipoToken tk = palavrasReservadas.get(palavra);
-			if (tk != null) return new Token(palavra, tk, startLinha, startColuna);
-			throw new Exception("Palavra desconhecida: " + palavra + " (linha " + startLinha + ", coluna " + startColuna + ")");
+			TipoToken tk = reconhecerPalavra(ldat.getBufferLexema(), ldat.getInicioBufferLexema(), ldat.getTamanhoLexema());
+			if (tk != null) return tk;
+			return erro(CodigoErro.PALAVRA_DESCONHECIDA, ldat.getLexemaAtual());
 		}
 
 		// Operadores compostos e simples
 		if (c == ':') {
 			int d = lerChar();
-			if (d == '=') return new Token(":=", TipoToken.Atrib, startLinha, startColuna);
+			if (d == '=') return TipoToken.Atrib;
 			devolverChar(d);
-			return new Token(":", TipoToken.DelimDoisPontos, startLinha, startColuna);
+			return TipoToken.DelimDoisPontos;
 		}
 		if (c == '<') {
 			int d = lerChar();
-			if (d == '=') return new Token("<=", TipoToken.OpRelMenorIgual, startLinha, startColuna);
+			if (d == '=') return TipoToken.OpRelMenorIgual;
 			devolverChar(d);
-			return new Token("<", TipoToken.OpRelMenor, startLinha, startColuna);
+			return TipoToken.OpRelMenor;
 		}
 		if (c == '>') {
 			int d = lerChar();
-			if (d == '=') return new Token(">=", TipoToken.OpRelMaiorIgual, startLinha, startColuna);
+			if (d == '=') return TipoToken.OpRelMaiorIgual;
 			devolverChar(d);
-			return new Token(">", TipoToken.OpRelMaior, startLinha, startColuna);
+			return TipoToken.OpRelMaior;
 		}
 		if (c == '=') {
 			int d = lerChar();
-			if (d == '=') return new Token("==", TipoToken.OpRelIgual, startLinha, startColuna);
-			throw new Exception("'=' isolado não é válido. Use '==' para igualdade ou ':=' para atribuição. (linha " + startLinha + ", coluna " + startColuna + ")");
+			if (d == '=') return TipoToken.OpRelIgual;
+			devolverChar(d);
+			return erro(CodigoErro.IGUAL_ISOLADO, null);
 		}
 		if (c == '!') {
 			int d = lerChar();
-			if (d == '=') return new Token("!=", TipoToken.OpRelDif, startLinha, startColuna);
-			throw new Exception("'!' isolado não é válido. Use '!=' para diferente. (linha " + startLinha + ", coluna " + startColuna + ")");
+			if (d == '=') return TipoToken.OpRelDif;
+			devolverChar(d);
+			return erro(CodigoErro.EXCLAMACAO_ISOLADA, null);
 		}
 
 		// Tokens de 1 caractere via tabela
-		TipoToken tk = tokensSimples.get((char)c);
+		TipoToken tk = tokenSimples(c);
 		if (tk != null) {
-			return new Token(String.valueOf((char)c), tk, startLinha, startColuna);
+			return tk;
 		}
 
-		throw new Exception("Caractere inesperado: '" + (char)c + "' (linha " + startLinha + ", coluna " + startColuna + ")");
+		return erro(CodigoErro.CARACTERE_INESPERADO, ldat.completarCaracter(c));
+	}
+
+	/**
+	 * Trata um erro léxico no token atual: no modo de recuperação reporta o diagnóstico e devolve
+	 * TipoToken.Erro (o lexema consumido vira o token de erro); caso contrário lança a exceção.
+	 * No limite de erros (ver Diagnosticos) a análise para com Diagnosticos.LimiteAtingido.
+	 */
+	private TipoToken erro(CodigoErro codigo, String argumento) throws Exception {
+		Diagnostico diag = new Diagnostico(codigo, linhaDoToken(), colunaDoToken(), argumento);
+		if (!modoRecuperacao) {
+			throw new Exception(diag.getMensagem());
+		}
+		diagnosticos.reportar(diag);
+		return TipoToken.Erro;
 	}
 
 
-}
+}
\ No newline at end of file
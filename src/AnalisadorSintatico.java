@@ -1,13 +1,32 @@
+import java.util.Arrays;
 import java.util.Set;
 import java.util.EnumSet;
 
 /**
  * Analisador Sintático Preditivo Recursivo Descendente para a gramática GYH.
+ * Opcionalmente monta uma ArenaAst (ver AnalisadorSintatico(BufferTokens, boolean)): as regras
+ * devolvem o índice do nó criado, ou ArenaAst.NENHUM quando a árvore não está sendo montada.
+ *
+ * No modo de recuperação (setModoRecuperacao) os erros não interrompem a análise: cada um vira um
+ * Diagnostico e o parser se ressincroniza em modo pânico, pulando tokens até um dos conjuntos FOLLOW
+ * abaixo. Erros seguintes são descartados até que um token seja casado, para evitar cascatas.
+ *
+ * As expressões são analisadas por precedência de operadores, em um único laço com pilhas explícitas
+ * (ver expressao()); a cadeia recursiva original (expressaoAritmetica, termoAritmetico...) continua
+ * disponível com setExpressoesRecursivas(true) e aceita exatamente a mesma linguagem.
+ * Do mesmo jeito, SE, ENQTO e INICIO...FINAL aninhados ficam em uma pilha de quadros (ver comandos());
+ * a descida recursiva original é usada com setComandosRecursivos(true).
  */
 public class AnalisadorSintatico {
 
-    private AnalisadorLexico alex;
-    private Token currentToken;
+    // maior lookahead disponível para as regras
+    private static final int LOOKAHEAD = 3;
+
+    // Tokens à frente, vindos do léxico ou de um BufferTokens
+    private final JanelaTokens janela;
+
+    // AST em construção (null quando o parser só valida)
+    private ArenaAst arena;
 
     // Conjunto de tokens que podem iniciar um comando, usado para laços
     private final Set<TipoToken> firstOfComando = EnumSet.of(
@@ -29,27 +48,250 @@ public class AnalisadorSintatico {
         TipoToken.OpRelDif
     );
 
+    // Conjuntos FOLLOW usados para ressincronizar no modo de recuperação
+    private final Set<TipoToken> followOfListaComandos = EnumSet.of(TipoToken.EOF, TipoToken.PCFim);
+    private final Set<TipoToken> followOfComando = uniao(firstOfComando, followOfListaComandos, TipoToken.PCSenao);
+    private final Set<TipoToken> followOfDeclaracao = EnumSet.of(TipoToken.Var, TipoToken.DelimAbre);
+    private final Set<TipoToken> followOfExpressaoRelacional = uniao(firstOfComando, null,
+        TipoToken.PCEntao, TipoToken.FechaPar);
+    private final Set<TipoToken> followOfTermoRelacional = uniao(followOfExpressaoRelacional, null,
+        TipoToken.OpBoolE, TipoToken.OpBoolOu);
+    private final Set<TipoToken> followOfExpressaoAritmetica = uniao(uniao(followOfComando, operadoresRelacionais),
+        followOfTermoRelacional, TipoToken.FechaPar);
+    private final Set<TipoToken> followOfTermoAritmetico = uniao(followOfExpressaoAritmetica, null,
+        TipoToken.OpAritSoma, TipoToken.OpAritSub);
+    private final Set<TipoToken> followOfFatorAritmetico = uniao(followOfTermoAritmetico, null,
+        TipoToken.OpAritMult, TipoToken.OpAritDiv);
+
+    // Modo de recuperação: erros viram Diagnosticos em vez de exceções
+    private boolean modoRecuperacao = false;
+    private boolean emPanico = false;    // já houve erro e nenhum token foi casado desde então
+    private Diagnosticos diagnosticos = new Diagnosticos();
+
+    // Precedência dos operadores binários, indexada pelo ordinal do TipoToken (0 = não é operador binário)
+    private static final int[] PRECEDENCIA = new int[TipoToken.values().length];
+    private static final int PREC_BOOLEANO = 1;     // E, OU (mesmo nível, associativos à esquerda)
+    private static final int PREC_RELACIONAL = 2;
+    private static final int PREC_SOMA = 3;
+    private static final int PREC_PRODUTO = 4;
+
+    static {
+        for (TipoToken t : TipoToken.values()) {
+            switch (t) {
+                case OpBoolE:
+                case OpBoolOu:
+                    PRECEDENCIA[t.ordinal()] = PREC_BOOLEANO;
+                    break;
+                case OpRelMenor:
+                case OpRelMenorIgual:
+                case OpRelMaior:
+                case OpRelMaiorIgual:
+                case OpRelIgual:
+                case OpRelDif:
+                    PRECEDENCIA[t.ordinal()] = PREC_RELACIONAL;
+                    break;
+                case OpAritSoma:
+                case OpAritSub:
+                    PRECEDENCIA[t.ordinal()] = PREC_SOMA;
+                    break;
+                case OpAritMult:
+                case OpAritDiv:
+                    PRECEDENCIA[t.ordinal()] = PREC_PRODUTO;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // Fase de cada grupo aberto na pilha de expressao(): um grupo aritmético, ou um grupo relacional
+    // e a posição dentro do TermoRelacional atual (ExpressaoAritmetica OP_REL ExpressaoAritmetica)
+    private static final int GRUPO_ARITMETICO = 0;
+    private static final int INICIO_TERMO = 1;      // antes do termo: '(' abre um grupo relacional
+    private static final int LADO_ESQUERDO = 2;
+    private static final int LADO_DIREITO = 3;
+    private static final int APOS_TERMO = 4;        // termo completo: só 'E'/'OU' continua o grupo
+
+    // Pilhas de expressao(), reaproveitadas entre expressões
+    private boolean expressoesRecursivas = false;
+    private int[] operandos = new int[16];
+    private int quantidadeOperandos;
+    private int[] precedenciaOperadores = new int[16];   // 0 marca a abertura de um grupo '('
+    private int[] nosOperadores = new int[16];
+    private int quantidadeOperadores;
+    private int[] fasesGrupos = new int[16];
+    private int quantidadeGrupos;
+
+    // Quadros da pilha de comandos(): uma lista de comandos (a de listaComandos ou a de um INICIO...FINAL)
+    // ou um SE/ENQTO esperando o comando interno
+    private static final int QUADRO_LISTA = 0;
+    private static final int QUADRO_BLOCO = 1;
+    private static final int QUADRO_SE = 2;
+    private static final int QUADRO_ENQTO = 3;
+
+    // Devolvido por iniciarComando() quando o comando ficou aberto na pilha (não é um índice de nó)
+    private static final int EM_ANDAMENTO = -2;
+
+    // Pilha de comandos aninhados, reaproveitada entre listas
+    private boolean comandosRecursivos = false;
+    private int[] tiposQuadros = new int[16];
+    private int[] nosQuadros = new int[16];
+    private int[] anterioresQuadros = new int[16];    // último filho ligado ao nó do quadro
+    private boolean[] senaoQuadros = new boolean[16];  // SE: já está no comando do SENAO
+    private int quantidadeQuadros;
+
     public AnalisadorSintatico(AnalisadorLexico alex) throws Exception {
-        this.alex = alex;
-        this.currentToken = alex.proxToken(); // Inicializa o primeiro token
+        this((FonteTokens) alex);
+    }
+
+    public AnalisadorSintatico(BufferTokens tokens) throws Exception {
+        this(tokens.cursor());
+    }
+
+    // construirAst = true: monta uma ArenaAst sobre 'tokens', disponível em getAst() depois do parse()
+    public AnalisadorSintatico(BufferTokens tokens, boolean construirAst) throws Exception {
+        this(tokens.cursor());
+        if (construirAst) arena = new ArenaAst(tokens);
+    }
+
+    public AnalisadorSintatico(FonteTokens fonte) throws Exception {
+        this.janela = new JanelaTokens(fonte, LOOKAHEAD);
+        janela.olhar(1); // Inicializa o primeiro token
+    }
+
+    private static Set<TipoToken> uniao(Set<TipoToken> a, Set<TipoToken> b, TipoToken... extras) {
+        Set<TipoToken> resultado = EnumSet.copyOf(a);
+        if (b != null) resultado.addAll(b);
+        for (TipoToken t : extras) resultado.add(t);
+        return resultado;
+    }
+
+    // true: usa a cadeia recursiva original para as expressões (para comparação)
+    public void setExpressoesRecursivas(boolean expressoesRecursivas) {
+        this.expressoesRecursivas = expressoesRecursivas;
+    }
+
+    // true: usa a descida recursiva original para os comandos aninhados (para comparação)
+    public void setComandosRecursivos(boolean comandosRecursivos) {
+        this.comandosRecursivos = comandosRecursivos;
+    }
+
+    public boolean isModoRecuperacao() {
+        return modoRecuperacao;
+    }
+
+    // Liga o modo de recuperação: parse() coleta todos os erros em getDiagnosticos() em uma única passada
+    public void setModoRecuperacao(boolean modoRecuperacao) {
+        this.modoRecuperacao = modoRecuperacao;
+    }
+
+    public Diagnosticos getDiagnosticos() {
+        return diagnosticos;
+    }
+
+    // Reporta os erros em 'diagnosticos', que pode ser o mesmo do AnalisadorLexico
+    public void setDiagnosticos(Diagnosticos diagnosticos) {
+        this.diagnosticos = diagnosticos;
+    }
+
+    public boolean temErros() {
+        return diagnosticos.temErros(CodigoErro.Fase.SINTATICA);
+    }
+
+    // --- Acesso ao token atual (posição 1 da janela) ---
+
+    private TipoToken tipoAtual() throws Exception {
+        return janela.olhar(1);
+    }
+
+    private int linhaAtual() throws Exception {
+        return janela.getLinha(1);
+    }
+
+    private int colunaAtual() throws Exception {
+        return janela.getColuna(1);
+    }
+
+    private String lexemaAtual() throws Exception {
+        return janela.getLexema(1);
+    }
+
+    private void avancar() throws Exception {
+        janela.avancar();
+    }
+
+    // --- Construção da AST (sem efeito quando arena == null) ---
+
+    // Nó do tipo dado para o token atual
+    private int novoNo(TipoNo tipo) throws Exception {
+        return arena != null ? arena.novoNo(tipo, janela.getIndice(1)) : ArenaAst.NENHUM;
+    }
+
+    // Uma regra que falhou no modo de recuperação devolve NENHUM: um nó Erro fica no lugar dela, para que
+    // os irmãos já ligados não se percam e os filhos de SE e ENQTO continuem nas suas posições
+    private int anexar(int pai, int anterior, int filho) {
+        if (arena == null) return ArenaAst.NENHUM;
+        if (filho == ArenaAst.NENHUM) filho = arena.novoNo(TipoNo.Erro, arena.getToken(pai));
+        return arena.anexar(pai, anterior, filho);
+    }
+
+    // Liga os operandos ao nó do operador e devolve o operador
+    private int binario(int operador, int esquerdo, int direito) {
+        anexar(operador, anexar(operador, ArenaAst.NENHUM, esquerdo), direito);
+        return operador;
+    }
+
+    // AST montada pelo último parse(), ou null se ela não foi pedida
+    public ArenaAst getAst() {
+        return arena;
     }
 
     /**
      * Consome o token atual se for do tipo esperado.
-     * Lança uma exceção se o token atual for diferente do esperado.
+     * Lança uma exceção se o token atual for diferente do esperado; no modo de recuperação registra o erro
+     * e, se o esperado vem logo depois, descarta o token atual, senão continua como se ele estivesse presente.
      * @param expectedType O TipoToken esperado.
      * @throws Exception Erro de sintaxe.
      */
     private void eat(TipoToken expectedType) throws Exception {
-        if (currentToken.getPadrao() == expectedType) {
+        if (tipoAtual() == expectedType) {
             // System.out.println("Consumed: " + currentToken); // Para depuração
-            currentToken = alex.proxToken();
+            avancar();
+            emPanico = false;
         } else {
-            throw new Exception(
-                String.format("Erro de Sintaxe na linha %d, coluna %d: Esperado token '%s', mas encontrou '%s' (Lexema: '%s')",
-                    currentToken.getLinha(), currentToken.getColuna(),
-                    expectedType, currentToken.getPadrao(), currentToken.getLexema())
-            );
+            erro(CodigoErro.TOKEN_ESPERADO, String.valueOf(expectedType), tipoAtual(), lexemaAtual());
+            if (janela.olhar(2) == expectedType) {
+                avancar();
+                avancar();
+                emPanico = false;   // o esperado foi casado: o próximo erro é reportado
+            }
+        }
+    }
+
+    // Consome o token atual, já verificado pelo chamador (equivale a um eat() bem-sucedido)
+    private void consumir() throws Exception {
+        avancar();
+        emPanico = false;
+    }
+
+    /**
+     * Reporta um erro de sintaxe no token atual: lança a exceção ou, no modo de recuperação,
+     * reporta o Diagnostico (se não houver outro erro ainda sem recuperação) e segue. No limite de erros
+     * (ver Diagnosticos) a análise para com Diagnosticos.LimiteAtingido.
+     */
+    private void erro(CodigoErro codigo, String argumento, Object... extras) throws Exception {
+        Diagnostico diag = new Diagnostico(codigo, linhaAtual(), colunaAtual(), argumento, extras);
+        if (!modoRecuperacao) {
+            throw new Exception(diag.getMensagem());
+        }
+        if (!emPanico) diagnosticos.reportar(diag);
+        emPanico = true;
+    }
+
+    // Modo pânico: descarta tokens até um do conjunto de sincronização (ou o EOF)
+    private void sincronizar(Set<TipoToken> conjunto) throws Exception {
+        while (tipoAtual() != TipoToken.EOF && !conjunto.contains(tipoAtual())) {
+            avancar();
         }
     }
 
@@ -58,265 +300,580 @@ public class AnalisadorSintatico {
      */
     public void parse() {
         try {
-            programa(); // Símbolo inicial da gramática
-            
-            if (currentToken.getPadrao() != TipoToken.EOF) {
-                // Se não chegou ao EOF, há "lixo" no final do arquivo
-                throw new Exception(
-                    String.format("Erro de Sintaxe na linha %d, coluna %d: Código inesperado após o final do programa, iniciando com '%s'",
-                        currentToken.getLinha(), currentToken.getColuna(), currentToken.getLexema())
-                );
-            }
-            System.out.println("Análise Sintática concluída com sucesso!");
-
+            analisar();
+        } catch (Diagnosticos.LimiteAtingido e) {
+            // parou no limite de erros: os reportados até ali são impressos abaixo
         } catch (Exception e) {
             System.err.println(e.getMessage());
+            return;
+        }
+        if (diagnosticos.temErros()) {
+            diagnosticos.imprimir(System.err, "");
+            return;
+        }
+        System.out.println("Análise Sintática concluída com sucesso!");
+    }
+
+    /**
+     * Analisa o programa inteiro sem imprimir nada. Lança o primeiro erro como exceção, exceto no modo
+     * de recuperação, em que os erros ficam em getDiagnosticos().
+     */
+    public void analisar() throws Exception {
+        programa(); // Símbolo inicial da gramática
+
+        if (tipoAtual() != TipoToken.EOF) {
+            // Se não chegou ao EOF, há "lixo" no final do arquivo
+            erro(CodigoErro.CODIGO_APOS_FIM, lexemaAtual());
         }
     }
 
     // --- Métodos para cada regra da gramática ---
 
     // Programa → '[' 'DECLARAR'']' ListaDeclaracoes '[' 'PROGRAMA'']' ListaComandos;
-    private void programa() throws Exception {
+    private int programa() throws Exception {
+        int raiz = novoNo(TipoNo.Programa);
         eat(TipoToken.DelimAbre);
         eat(TipoToken.PCDec);
         eat(TipoToken.DelimFecha);
-        listaDeclaracoes();
+        int declaracoes = anexar(raiz, ArenaAst.NENHUM, listaDeclaracoes());
         eat(TipoToken.DelimAbre);
         eat(TipoToken.PCProg);
         eat(TipoToken.DelimFecha);
-        listaComandos();
+        int comandos = anexar(raiz, declaracoes, novoNo(TipoNo.Comandos));
+        listaComandos(comandos, TipoToken.EOF);
+        return raiz;
     }
 
     // ListaDeclaracoes → Declaracao ListaDeclaracoes | Declaracao;
     // Implementado como: (Declaracao)*
-    private void listaDeclaracoes() throws Exception {
-        while (currentToken.getPadrao() == TipoToken.Var) {
-            declaracao();
+    private int listaDeclaracoes() throws Exception {
+        int lista = novoNo(TipoNo.Declaracoes);
+        int anterior = ArenaAst.NENHUM;
+        while (tipoAtual() == TipoToken.Var) {
+            anterior = anexar(lista, anterior, declaracao());
         }
+        return lista;
     }
 
     // Declaracao → VARIAVEL ':' TipoVar;
-    private void declaracao() throws Exception {
+    private int declaracao() throws Exception {
+        int no = novoNo(TipoNo.Declaracao);
         eat(TipoToken.Var);
         eat(TipoToken.DelimDoisPontos);
-        tipoVar();
+        anexar(no, ArenaAst.NENHUM, tipoVar());
+        return no;
     }
 
     // TipoVar → 'INTEGER' | 'REAL';
-    private void tipoVar() throws Exception {
-        if (currentToken.getPadrao() == TipoToken.PCInt) {
+    private int tipoVar() throws Exception {
+        int no = novoNo(TipoNo.TipoVar);
+        if (tipoAtual() == TipoToken.PCInt) {
             eat(TipoToken.PCInt);
-        } else if (currentToken.getPadrao() == TipoToken.PCReal) {
+        } else if (tipoAtual() == TipoToken.PCReal) {
             eat(TipoToken.PCReal);
         } else {
-            throw new Exception(String.format("Erro de Sintaxe na linha %d: Esperado 'INTEGER' ou 'REAL', mas encontrou '%s'",
-                currentToken.getLinha(), currentToken.getPadrao()));
+            erro(CodigoErro.TIPO_ESPERADO, String.valueOf(tipoAtual()));
+            sincronizar(followOfDeclaracao);
         }
+        return no;
     }
 
     // ListaComandos → Comando ListaComandos | Comando;
-    // Implementado como: (Comando)*
-    private void listaComandos() throws Exception {
+    // Implementado como: (Comando)*, com os comandos ligados como filhos de 'pai'.
+    // 'terminador' é o token que deve encerrar a lista (EOF ou FINAL), usado na mensagem de erro.
+    private void listaComandos(int pai, TipoToken terminador) throws Exception {
+        if (!comandosRecursivos) {
+            comandos(pai, terminador);
+            return;
+        }
+        int anterior = ArenaAst.NENHUM;
         // Usa o conjunto 'firstOfComando' para decidir se há mais comandos
-        while (firstOfComando.contains(currentToken.getPadrao())) {
-            comando();
+        while (true) {
+            if (firstOfComando.contains(tipoAtual())) {
+                anterior = anexar(pai, anterior, comando());
+            } else if (modoRecuperacao && !followOfListaComandos.contains(tipoAtual())) {
+                // token que não inicia comando nem encerra a lista: reporta o mesmo erro do modo normal
+                // e pula até o próximo comando
+                if (terminador == TipoToken.EOF) {
+                    erro(CodigoErro.CODIGO_APOS_FIM, lexemaAtual());
+                } else {
+                    erro(CodigoErro.TOKEN_ESPERADO, String.valueOf(terminador), tipoAtual(), lexemaAtual());
+                }
+                sincronizar(uniao(firstOfComando, followOfListaComandos));
+            } else {
+                break;
+            }
         }
     }
 
     // Comando → ComandoAtribuicao | ComandoEntrada | ComandoSaida | ComandoCondicao | ComandoRepeticao | SubAlgoritmo;
-    private void comando() throws Exception {
-        switch (currentToken.getPadrao()) {
+    private int comando() throws Exception {
+        switch (tipoAtual()) {
             case Var:
-                comandoAtribuicao();
-                break;
+                return comandoAtribuicao();
             case PCLer:
-                comandoEntrada();
-                break;
+                return comandoEntrada();
             case PCImprimir:
-                comandoSaida();
-                break;
+                return comandoSaida();
             case PCSe:
-                comandoCondicao();
-                break;
+                return comandoCondicao();
             case PCEnqto:
-                comandoRepeticao();
-                break;
+                return comandoRepeticao();
             case PCIni:
-                subAlgoritmo();
-                break;
+                return subAlgoritmo();
             default:
-                throw new Exception(String.format("Erro de Sintaxe na linha %d: Comando inválido. '%s' não inicia um comando.",
-                    currentToken.getLinha(), currentToken.getLexema()));
+                erro(CodigoErro.COMANDO_INVALIDO, lexemaAtual());
+                sincronizar(followOfComando);
+                return ArenaAst.NENHUM;
         }
     }
 
     // ComandoAtribuicao → VARIAVEL ':=' ExpressaoAritmetica;
-    private void comandoAtribuicao() throws Exception {
+    private int comandoAtribuicao() throws Exception {
+        int no = novoNo(TipoNo.Atribuicao);
         eat(TipoToken.Var);
         eat(TipoToken.Atrib);
-        expressaoAritmetica();
+        anexar(no, ArenaAst.NENHUM, expressao(false));
+        return no;
     }
 
     // ComandoEntrada → 'LER' VARIAVEL;
-    private void comandoEntrada() throws Exception {
+    private int comandoEntrada() throws Exception {
         eat(TipoToken.PCLer);
+        int no = novoNo(TipoNo.Entrada);
         eat(TipoToken.Var);
+        return no;
     }
 
     // ComandoSaida → 'IMPRIMIR' VARIAVEL | 'IMPRIMIR' CADEIA;
-    private void comandoSaida() throws Exception {
+    private int comandoSaida() throws Exception {
         eat(TipoToken.PCImprimir);
-        if (currentToken.getPadrao() == TipoToken.Var) {
+        int no = novoNo(TipoNo.Saida);
+        if (tipoAtual() == TipoToken.Var) {
             eat(TipoToken.Var);
-        } else if (currentToken.getPadrao() == TipoToken.Cadeia) {
+        } else if (tipoAtual() == TipoToken.Cadeia) {
             eat(TipoToken.Cadeia);
         } else {
-            throw new Exception(String.format("Erro de Sintaxe na linha %d: Argumento inválido para 'IMPRIMIR'. Esperado VARIAVEL ou CADEIA, encontrou '%s'",
-                currentToken.getLinha(), currentToken.getPadrao()));
+            erro(CodigoErro.ARGUMENTO_IMPRIMIR, String.valueOf(tipoAtual()));
+            sincronizar(followOfComando);
         }
+        return no;
     }
 
     // ComandoCondicao → 'SE' ExpressaoRelacional 'ENTAO' Comando | 'SE' ExpressaoRelacional 'ENTAO' Comando 'SENAO' Comando;
-    private void comandoCondicao() throws Exception {
+    private int comandoCondicao() throws Exception {
+        int no = novoNo(TipoNo.Se);
         eat(TipoToken.PCSe);
-        expressaoRelacional();
+        int condicao = anexar(no, ArenaAst.NENHUM, expressao(true));
         eat(TipoToken.PCEntao);
-        comando();
+        int entao = anexar(no, condicao, comando());
         // Parte opcional 'SENAO'
-        if (currentToken.getPadrao() == TipoToken.PCSenao) {
+        if (tipoAtual() == TipoToken.PCSenao) {
             eat(TipoToken.PCSenao);
-            comando();
+            anexar(no, entao, comando());
         }
+        return no;
     }
 
     // ComandoRepeticao → 'ENQTO' ExpressaoRelacional Comando;
-    private void comandoRepeticao() throws Exception {
+    private int comandoRepeticao() throws Exception {
+        int no = novoNo(TipoNo.Enquanto);
         eat(TipoToken.PCEnqto);
-        expressaoRelacional();
-        comando();
+        int condicao = anexar(no, ArenaAst.NENHUM, expressao(true));
+        anexar(no, condicao, comando());
+        return no;
     }
 
     // SubAlgoritmo → 'INICIO' ListaComandos 'FINAL';
-    private void subAlgoritmo() throws Exception {
+    private int subAlgoritmo() throws Exception {
+        int no = novoNo(TipoNo.Bloco);
         eat(TipoToken.PCIni);
-        listaComandos();
+        listaComandos(no, TipoToken.PCFim);
         eat(TipoToken.PCFim);
+        return no;
+    }
+
+    // --- Comandos aninhados com pilha explícita ---
+
+    /**
+     * ListaComandos sem recursão: cada SE, ENQTO e INICIO...FINAL aberto vira um quadro em uma pilha
+     * de ints no heap, então a profundidade do aninhamento é limitada pela memória e não pela pilha
+     * da thread. Consome os tokens, monta os nós e reporta os erros na mesma ordem de listaComandos()
+     * e comando() recursivos.
+     */
+    private void comandos(int pai, TipoToken terminador) throws Exception {
+        quantidadeQuadros = 0;
+        empilharQuadro(QUADRO_LISTA, pai, ArenaAst.NENHUM);
+        int resultado = ArenaAst.NENHUM;
+        boolean entregar = false;   // 'resultado' é um comando completo, a ligar no quadro do topo
+
+        while (true) {
+            int topo = quantidadeQuadros - 1;
+            int tipoQuadro = tiposQuadros[topo];
+            int no = nosQuadros[topo];
+
+            if (entregar) {
+                entregar = false;
+                anterioresQuadros[topo] = anexar(no, anterioresQuadros[topo], resultado);
+                if (tipoQuadro == QUADRO_LISTA || tipoQuadro == QUADRO_BLOCO) continue;
+                if (tipoQuadro == QUADRO_SE && !senaoQuadros[topo] && tipoAtual() == TipoToken.PCSenao) {
+                    // Parte opcional 'SENAO'
+                    eat(TipoToken.PCSenao);
+                    senaoQuadros[topo] = true;
+                } else {
+                    // SE/ENQTO completo: vira o resultado do quadro de baixo
+                    quantidadeQuadros--;
+                    resultado = no;
+                    entregar = true;
+                    continue;
+                }
+            }
+
+            if (tipoQuadro == QUADRO_SE || tipoQuadro == QUADRO_ENQTO) {
+                // comando interno, obrigatório
+                resultado = iniciarComando();
+                entregar = resultado != EM_ANDAMENTO;
+                continue;
+            }
+
+            // lista de comandos: mesmas decisões do laço de listaComandos()
+            TipoToken fimLista = tipoQuadro == QUADRO_BLOCO ? TipoToken.PCFim : terminador;
+            if (firstOfComando.contains(tipoAtual())) {
+                resultado = iniciarComando();
+                entregar = resultado != EM_ANDAMENTO;
+            } else if (modoRecuperacao && !followOfListaComandos.contains(tipoAtual())) {
+                if (fimLista == TipoToken.EOF) {
+                    erro(CodigoErro.CODIGO_APOS_FIM, lexemaAtual());
+                } else {
+                    erro(CodigoErro.TOKEN_ESPERADO, String.valueOf(fimLista), tipoAtual(), lexemaAtual());
+                }
+                sincronizar(uniao(firstOfComando, followOfListaComandos));
+            } else {
+                quantidadeQuadros--;
+                if (tipoQuadro == QUADRO_LISTA) return;
+                eat(TipoToken.PCFim);
+                resultado = no;
+                entregar = true;
+            }
+        }
+    }
+
+    /**
+     * Começa um comando no token atual. Atribuição, entrada, saída e comando inválido são analisados
+     * inteiros e o nó é devolvido; SE, ENQTO e INICIO são analisados até o comando interno, empilhados,
+     * e o retorno é EM_ANDAMENTO.
+     */
+    private int iniciarComando() throws Exception {
+        int no;
+        switch (tipoAtual()) {
+            case Var:
+                return comandoAtribuicao();
+            case PCLer:
+                return comandoEntrada();
+            case PCImprimir:
+                return comandoSaida();
+            case PCSe:
+                no = novoNo(TipoNo.Se);
+                eat(TipoToken.PCSe);
+                int condicao = anexar(no, ArenaAst.NENHUM, expressao(true));
+                eat(TipoToken.PCEntao);
+                empilharQuadro(QUADRO_SE, no, condicao);
+                return EM_ANDAMENTO;
+            case PCEnqto:
+                no = novoNo(TipoNo.Enquanto);
+                eat(TipoToken.PCEnqto);
+                empilharQuadro(QUADRO_ENQTO, no, anexar(no, ArenaAst.NENHUM, expressao(true)));
+                return EM_ANDAMENTO;
+            case PCIni:
+                no = novoNo(TipoNo.Bloco);
+                eat(TipoToken.PCIni);
+                empilharQuadro(QUADRO_BLOCO, no, ArenaAst.NENHUM);
+                return EM_ANDAMENTO;
+            default:
+                erro(CodigoErro.COMANDO_INVALIDO, lexemaAtual());
+                sincronizar(followOfComando);
+                return ArenaAst.NENHUM;
+        }
+    }
+
+    private void empilharQuadro(int tipo, int no, int anterior) {
+        if (quantidadeQuadros == tiposQuadros.length) {
+            int nova = quantidadeQuadros * 2;
+            tiposQuadros = Arrays.copyOf(tiposQuadros, nova);
+            nosQuadros = Arrays.copyOf(nosQuadros, nova);
+            anterioresQuadros = Arrays.copyOf(anterioresQuadros, nova);
+            senaoQuadros = Arrays.copyOf(senaoQuadros, nova);
+        }
+        tiposQuadros[quantidadeQuadros] = tipo;
+        nosQuadros[quantidadeQuadros] = no;
+        anterioresQuadros[quantidadeQuadros] = anterior;
+        senaoQuadros[quantidadeQuadros] = false;
+        quantidadeQuadros++;
+    }
+
+    // --- Expressões por precedência de operadores ---
+
+    /**
+     * Analisa uma ExpressaoRelacional (relacional = true) ou uma ExpressaoAritmetica em um único laço,
+     * com pilhas de operandos, operadores e grupos de parênteses no lugar da recursão: a profundidade
+     * dos parênteses não consome pilha de chamadas. Segue as mesmas decisões LL(1) da cadeia recursiva
+     * (um '(' no início de um TermoRelacional abre uma ExpressaoRelacional; em qualquer outro ponto, uma
+     * ExpressaoAritmetica) e reporta os mesmos erros, na mesma ordem.
+     */
+    private int expressao(boolean relacional) throws Exception {
+        if (expressoesRecursivas) {
+            return relacional ? expressaoRelacional() : expressaoAritmetica();
+        }
+        quantidadeOperandos = 0;
+        quantidadeOperadores = 0;
+        quantidadeGrupos = 0;
+        abrirGrupo(relacional ? INICIO_TERMO : GRUPO_ARITMETICO);
+
+        while (true) {
+            // espera um operando
+            if (faseAtual() == INICIO_TERMO) {
+                if (tipoAtual() == TipoToken.AbrePar) {
+                    eat(TipoToken.AbrePar);
+                    abrirGrupo(INICIO_TERMO);
+                    continue;
+                }
+                mudarFase(LADO_ESQUERDO);
+            }
+            if (tipoAtual() == TipoToken.AbrePar) {
+                eat(TipoToken.AbrePar);
+                abrirGrupo(GRUPO_ARITMETICO);
+                continue;
+            }
+            empilharOperando(operando());
+
+            // depois do operando: operadores, ou o fim de um ou mais grupos
+            while (true) {
+                TipoToken tipo = tipoAtual();
+                int precedencia = PRECEDENCIA[tipo.ordinal()];
+                int fase = faseAtual();
+                if (fase != APOS_TERMO && precedencia >= PREC_SOMA) {
+                    reduzir(precedencia);
+                    empilharOperador(precedencia, novoNo(TipoNo.OpAritmetico));
+                    consumir();
+                    break;
+                }
+                if (fase == LADO_ESQUERDO) {
+                    reduzir(PREC_SOMA);
+                    // no modo de recuperação segue como se o operador estivesse presente
+                    empilharOperador(PREC_RELACIONAL, novoNo(TipoNo.OpRelacional));
+                    if (precedencia == PREC_RELACIONAL) consumir();
+                    else operadorRelacional();
+                    mudarFase(LADO_DIREITO);
+                    break;
+                }
+                if (fase == LADO_DIREITO) {
+                    reduzir(PREC_RELACIONAL);
+                    fase = APOS_TERMO;
+                    mudarFase(fase);
+                }
+                if (fase == APOS_TERMO && precedencia == PREC_BOOLEANO) {
+                    reduzir(PREC_BOOLEANO);
+                    empilharOperador(PREC_BOOLEANO, novoNo(TipoNo.OpBooleano));
+                    consumir();
+                    mudarFase(INICIO_TERMO);
+                    break;
+                }
+
+                // o grupo atual terminou
+                reduzir(PREC_BOOLEANO);
+                if (quantidadeGrupos == 1) {
+                    return operandos[--quantidadeOperandos];
+                }
+                eat(TipoToken.FechaPar);
+                quantidadeOperadores--;   // marca do '('
+                quantidadeGrupos--;
+                // um grupo relacional entre parênteses é um TermoRelacional completo
+                if (faseAtual() == INICIO_TERMO) mudarFase(APOS_TERMO);
+            }
+        }
+    }
+
+    // Número ou variável; o '(' é tratado pela pilha de grupos de expressao()
+    private int operando() throws Exception {
+        int no;
+        switch (tipoAtual()) {
+            case NumInt:
+            case NumReal:
+                no = novoNo(TipoNo.Numero);
+                consumir();
+                return no;
+            case Var:
+                no = novoNo(TipoNo.Variavel);
+                consumir();
+                return no;
+            default:
+                erro(CodigoErro.FATOR_INVALIDO, String.valueOf(tipoAtual()));
+                sincronizar(followOfFatorAritmetico);
+                return ArenaAst.NENHUM;
+        }
+    }
+
+    // Aplica os operadores do grupo atual com precedência >= 'precedencia' (todos são associativos à esquerda)
+    private void reduzir(int precedencia) {
+        while (quantidadeOperadores > 0 && precedenciaOperadores[quantidadeOperadores - 1] >= precedencia) {
+            int operador = nosOperadores[--quantidadeOperadores];
+            int direito = operandos[--quantidadeOperandos];
+            int esquerdo = operandos[--quantidadeOperandos];
+            empilharOperando(binario(operador, esquerdo, direito));
+        }
+    }
+
+    private void abrirGrupo(int fase) {
+        if (quantidadeGrupos > 0) empilharOperador(0, ArenaAst.NENHUM);
+        if (quantidadeGrupos == fasesGrupos.length) fasesGrupos = Arrays.copyOf(fasesGrupos, quantidadeGrupos * 2);
+        fasesGrupos[quantidadeGrupos++] = fase;
+    }
+
+    private int faseAtual() {
+        return fasesGrupos[quantidadeGrupos - 1];
+    }
+
+    private void mudarFase(int fase) {
+        fasesGrupos[quantidadeGrupos - 1] = fase;
+    }
+
+    private void empilharOperando(int no) {
+        if (quantidadeOperandos == operandos.length) operandos = Arrays.copyOf(operandos, quantidadeOperandos * 2);
+        operandos[quantidadeOperandos++] = no;
+    }
+
+    private void empilharOperador(int precedencia, int no) {
+        if (quantidadeOperadores == nosOperadores.length) {
+            precedenciaOperadores = Arrays.copyOf(precedenciaOperadores, quantidadeOperadores * 2);
+            nosOperadores = Arrays.copyOf(nosOperadores, quantidadeOperadores * 2);
+        }
+        precedenciaOperadores[quantidadeOperadores] = precedencia;
+        nosOperadores[quantidadeOperadores++] = no;
     }
 
     // --- Regras de Expressão (com eliminação de recursão à esquerda) ---
+    // Cadeia recursiva original, usada com setExpressoesRecursivas(true)
 
     // ExpressaoAritmetica → TermoAritmetico ExpressaoAritmetica'
-    private void expressaoAritmetica() throws Exception {
-        termoAritmetico();
-        expressaoAritmeticaPrime();
+    private int expressaoAritmetica() throws Exception {
+        return expressaoAritmeticaPrime(termoAritmetico());
     }
 
     // ExpressaoAritmetica' → '+' TermoAritmetico ExpressaoAritmetica' | '-' TermoAritmetico ExpressaoAritmetica' | ε
-    private void expressaoAritmeticaPrime() throws Exception {
-        while (currentToken.getPadrao() == TipoToken.OpAritSoma || currentToken.getPadrao() == TipoToken.OpAritSub) {
-            if (currentToken.getPadrao() == TipoToken.OpAritSoma) {
+    // 'esquerdo' é o nó do operando já lido; a árvore sai associativa à esquerda
+    private int expressaoAritmeticaPrime(int esquerdo) throws Exception {
+        while (tipoAtual() == TipoToken.OpAritSoma || tipoAtual() == TipoToken.OpAritSub) {
+            int operador = novoNo(TipoNo.OpAritmetico);
+            if (tipoAtual() == TipoToken.OpAritSoma) {
                 eat(TipoToken.OpAritSoma);
-                termoAritmetico();
-            } else if (currentToken.getPadrao() == TipoToken.OpAritSub) {
+            } else if (tipoAtual() == TipoToken.OpAritSub) {
                 eat(TipoToken.OpAritSub);
-                termoAritmetico();
             }
+            esquerdo = binario(operador, esquerdo, termoAritmetico());
         }
         // Se não for '+' ou '-', é a produção vazia (ε), então não fazemos nada.
+        return esquerdo;
     }
 
     // TermoAritmetico → FatorAritmetico TermoAritmetico'
-    private void termoAritmetico() throws Exception {
-        fatorAritmetico();
-        termoAritmeticoPrime();
+    private int termoAritmetico() throws Exception {
+        return termoAritmeticoPrime(fatorAritmetico());
     }
 
     // TermoAritmetico' → '*' FatorAritmetico TermoAritmetico' | '/' FatorAritmetico TermoAritmetico' | ε
-    private void termoAritmeticoPrime() throws Exception {
-        while (currentToken.getPadrao() == TipoToken.OpAritMult || currentToken.getPadrao() == TipoToken.OpAritDiv) {
-            if (currentToken.getPadrao() == TipoToken.OpAritMult) {
+    private int termoAritmeticoPrime(int esquerdo) throws Exception {
+        while (tipoAtual() == TipoToken.OpAritMult || tipoAtual() == TipoToken.OpAritDiv) {
+            int operador = novoNo(TipoNo.OpAritmetico);
+            if (tipoAtual() == TipoToken.OpAritMult) {
                 eat(TipoToken.OpAritMult);
-                fatorAritmetico();
-            } else if (currentToken.getPadrao() == TipoToken.OpAritDiv) {
+            } else if (tipoAtual() == TipoToken.OpAritDiv) {
                 eat(TipoToken.OpAritDiv);
-                fatorAritmetico();
             }
+            esquerdo = binario(operador, esquerdo, fatorAritmetico());
         }
         // Produção vazia (ε)
+        return esquerdo;
     }
 
     // FatorAritmetico → NUMINT | NUMREAL | VARIAVEL | '(' ExpressaoAritmetica ')'
-    private void fatorAritmetico() throws Exception {
-        switch (currentToken.getPadrao()) {
+    // Parênteses não viram nó: a estrutura da árvore já guarda o agrupamento
+    private int fatorAritmetico() throws Exception {
+        int no;
+        switch (tipoAtual()) {
             case NumInt:
+                no = novoNo(TipoNo.Numero);
                 eat(TipoToken.NumInt);
-                break;
+                return no;
             case NumReal:
+                no = novoNo(TipoNo.Numero);
                 eat(TipoToken.NumReal);
-                break;
+                return no;
             case Var:
+                no = novoNo(TipoNo.Variavel);
                 eat(TipoToken.Var);
-                break;
+                return no;
             case AbrePar:
                 eat(TipoToken.AbrePar);
-                expressaoAritmetica();
+                no = expressaoAritmetica();
                 eat(TipoToken.FechaPar);
-                break;
+                return no;
             default:
-                throw new Exception(String.format("Erro de Sintaxe na linha %d: Fator aritmético inválido. Esperado Número, Variável ou '(', encontrou '%s'",
-                    currentToken.getLinha(), currentToken.getPadrao()));
+                erro(CodigoErro.FATOR_INVALIDO, String.valueOf(tipoAtual()));
+                sincronizar(followOfFatorAritmetico);
+                return ArenaAst.NENHUM;
         }
     }
 
     // ExpressaoRelacional → TermoRelacional ExpressaoRelacional'
-    private void expressaoRelacional() throws Exception {
-        termoRelacional();
-        expressaoRelacionalPrime();
+    private int expressaoRelacional() throws Exception {
+        return expressaoRelacionalPrime(termoRelacional());
     }
 
     // ExpressaoRelacional' → OperadorBooleano TermoRelacional ExpressaoRelacional' | ε
-    private void expressaoRelacionalPrime() throws Exception {
-        while (currentToken.getPadrao() == TipoToken.OpBoolE || currentToken.getPadrao() == TipoToken.OpBoolOu) {
+    private int expressaoRelacionalPrime(int esquerdo) throws Exception {
+        while (tipoAtual() == TipoToken.OpBoolE || tipoAtual() == TipoToken.OpBoolOu) {
+            int operador = novoNo(TipoNo.OpBooleano);
             operadorBooleano();
-            termoRelacional();
+            esquerdo = binario(operador, esquerdo, termoRelacional());
         }
         // Produção vazia (ε)
+        return esquerdo;
     }
 
     // TermoRelacional → ExpressaoAritmetica OP_REL ExpressaoAritmetica | '(' ExpressaoRelacional ')';
-    private void termoRelacional() throws Exception {
-        if (currentToken.getPadrao() == TipoToken.AbrePar) {
+    private int termoRelacional() throws Exception {
+        if (tipoAtual() == TipoToken.AbrePar) {
             eat(TipoToken.AbrePar);
-            expressaoRelacional();
+            int no = expressaoRelacional();
             eat(TipoToken.FechaPar);
+            return no;
         } else {
             // Se não começa com '(', então deve ser uma ExpressaoAritmetica
-            expressaoAritmetica();
+            int esquerdo = expressaoAritmetica();
+            int operador = novoNo(TipoNo.OpRelacional);
             operadorRelacional(); // consome o operador relacional
-            expressaoAritmetica();
+            return binario(operador, esquerdo, expressaoAritmetica());
         }
     }
 
     // OperadorBooleano → 'E' | 'OU';
     private void operadorBooleano() throws Exception {
-        if (currentToken.getPadrao() == TipoToken.OpBoolE) {
+        if (tipoAtual() == TipoToken.OpBoolE) {
             eat(TipoToken.OpBoolE);
-        } else if (currentToken.getPadrao() == TipoToken.OpBoolOu) {
+        } else if (tipoAtual() == TipoToken.OpBoolOu) {
             eat(TipoToken.OpBoolOu);
         } else {
-            throw new Exception(String.format("Erro de Sintaxe na linha %d: Operador booleano esperado ('E' ou 'OU'), encontrou '%s'",
-                currentToken.getLinha(), currentToken.getPadrao()));
+            erro(CodigoErro.OPERADOR_BOOLEANO_ESPERADO, String.valueOf(tipoAtual()));
         }
     }
 
     // Método auxiliar para consumir qualquer um dos 6 operadores relacionais
     private void operadorRelacional() throws Exception {
-        if (operadoresRelacionais.contains(currentToken.getPadrao())) {
-            eat(currentToken.getPadrao()); // Consome o operador que encontrou
+        if (operadoresRelacionais.contains(tipoAtual())) {
+            eat(tipoAtual()); // Consome o operador que encontrou
         } else {
-            throw new Exception(String.format("Erro de Sintaxe na linha %d: Operador relacional esperado (ex: '==', '>', '<='), encontrou '%s'",
-                currentToken.getLinha(), currentToken.getPadrao()));
+            // continua como se o operador estivesse presente
+            erro(CodigoErro.OPERADOR_RELACIONAL_ESPERADO, String.valueOf(tipoAtual()));
         }
     }
 }
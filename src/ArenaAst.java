@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * AST compacta montada pelo AnalisadorSintatico (ver AnalisadorSintatico(BufferTokens, boolean)).
+ *
+ * Cada nó é um índice nos vetores paralelos da arena: tipo, primeiro filho, próximo irmão e índice
+ * do token no BufferTokens. Não há objetos por nó; lexema e posição saem do BufferTokens quando pedidos.
+ */
+public class ArenaAst {
+
+	public static final int NENHUM = -1;
+
+	private static final TipoNo[] TIPOS = TipoNo.values();
+	private static final int CAPACIDADE_INICIAL = 256;
+
+	private final BufferTokens tokens;
+	private byte[] tipos;
+	private int[] primeiroFilho;
+	private int[] proximoIrmao;
+	private int[] token;
+	private int quantidade;
+
+	public ArenaAst(BufferTokens tokens) {
+		this.tokens = tokens;
+		tipos = new byte[CAPACIDADE_INICIAL];
+		primeiroFilho = new int[CAPACIDADE_INICIAL];
+		proximoIrmao = new int[CAPACIDADE_INICIAL];
+		token = new int[CAPACIDADE_INICIAL];
+	}
+
+	// Cria um nó sem filhos e devolve o seu índice
+	public int novoNo(TipoNo tipo, int indiceToken) {
+		if (quantidade == tipos.length) crescer();
+		tipos[quantidade] = (byte) tipo.ordinal();
+		primeiroFilho[quantidade] = NENHUM;
+		proximoIrmao[quantidade] = NENHUM;
+		token[quantidade] = indiceToken;
+		return quantidade++;
+	}
+
+	/**
+	 * Liga 'filho' como próximo filho de 'pai', logo depois de 'anterior' (NENHUM para o primeiro filho).
+	 * @return o próprio filho, que passa a ser o 'anterior' da próxima ligação
+	 */
+	public int anexar(int pai, int anterior, int filho) {
+		if (anterior == NENHUM) primeiroFilho[pai] = filho;
+		else proximoIrmao[anterior] = filho;
+		return filho;
+	}
+
+	private void crescer() {
+		int nova = tipos.length * 2;
+		tipos = Arrays.copyOf(tipos, nova);
+		primeiroFilho = Arrays.copyOf(primeiroFilho, nova);
+		proximoIrmao = Arrays.copyOf(proximoIrmao, nova);
+		token = Arrays.copyOf(token, nova);
+	}
+
+	/**
+	 * Percorre a árvore a partir de 'no' em profundidade, chamando entrar/sair do visitante.
+	 * O caminho até o nó atual fica em uma pilha de ints no heap, não na pilha de chamadas,
+	 * então a profundidade da árvore é limitada só pela memória.
+	 */
+	public void visitar(int no, VisitanteAst visitante) throws Exception {
+		if (!visitante.entrar(this, no)) return;
+		int[] pilha = new int[16];
+		int topo = 0;
+		pilha[topo++] = no;
+		int atual = primeiroFilho[no];
+		while (topo > 0) {
+			if (atual != NENHUM) {
+				if (visitante.entrar(this, atual)) {
+					if (topo == pilha.length) pilha = Arrays.copyOf(pilha, topo * 2);
+					pilha[topo++] = atual;
+					atual = primeiroFilho[atual];
+				} else {
+					atual = proximoIrmao[atual];
+				}
+			} else {
+				// sem mais filhos: fecha o nó do topo e segue para o irmão dele
+				int fechado = pilha[--topo];
+				visitante.sair(this, fechado);
+				if (topo > 0) atual = proximoIrmao[fechado];
+			}
+		}
+	}
+
+	// Nó Programa, criado antes de todos os outros
+	public int getRaiz() {
+		return 0;
+	}
+
+	public int getQuantidade() {
+		return quantidade;
+	}
+
+	public TipoNo getTipo(int no) {
+		return TIPOS[tipos[no]];
+	}
+
+	public int getPrimeiroFilho(int no) {
+		return primeiroFilho[no];
+	}
+
+	public int getProximoIrmao(int no) {
+		return proximoIrmao[no];
+	}
+
+	// Índice do token do nó no BufferTokens
+	public int getToken(int no) {
+		return token[no];
+	}
+
+	public TipoToken getTipoToken(int no) {
+		return tokens.getTipo(token[no]);
+	}
+
+	public String getLexema(int no) {
+		return tokens.getLexema(token[no]);
+	}
+
+	public int getLinha(int no) {
+		return tokens.getLinha(token[no]);
+	}
+
+	public int getColuna(int no) {
+		return tokens.getColuna(token[no]);
+	}
+
+	public BufferTokens getTokens() {
+		return tokens;
+	}
+
+	// Árvore em texto, um nó por linha e indentada pela profundidade (para depuração)
+	public String descrever() throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		visitar(getRaiz(), new VisitanteAst() {
+			private int nivel;
+
+			public boolean entrar(ArenaAst ast, int no) {
+				for (int i = 0; i < nivel; i++) sb.append("  ");
+				sb.append(ast.getTipo(no)).append(' ').append(ast.getLexema(no)).append('\n');
+				nivel++;
+				return true;
+			}
+
+			public void sair(ArenaAst ast, int no) {
+				nivel--;
+			}
+		});
+		return sb.toString();
+	}
+}
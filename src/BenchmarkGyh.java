@@ -0,0 +1,634 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Microbenchmarks do analisador léxico/sintático escrito à mão.
+ * Uso: java -cp bin BenchmarkGyh [quantidadeDeComandos]
+ * Com -Dgyh.lexicoParalelo=true os tokens dados ao sintático vêm do LexicoParalelo.
+ */
+public class BenchmarkGyh {
+
+	private static final int AQUECIMENTO = 5;
+	private static final int REPETICOES = 10;
+	private static final String PASTA_TESTES = "src/Testess";
+	// pedaços na comparação com o modo sequencial, para que os cortes aconteçam com qualquer número de núcleos
+	private static final int PARTES_COMPARACAO = 8;
+
+	// evita que o JIT descarte o trabalho medido
+	private static volatile long sumidouro;
+
+	public static void main(String[] args) throws Exception {
+		int comandos = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+		System.out.println("========== BENCHMARK GYH ==========\n");
+		benchmarkPalavrasReservadas();
+		benchmarkTokensSimples();
+
+		File arquivo = gerarArquivo(gerarPrograma(comandos));
+		System.out.println("Programa gerado: " + comandos + " comandos, " + arquivo.length() + " bytes\n");
+		benchmarkLexico(arquivo);
+		benchmarkLexicoParalelo(arquivo);
+		benchmarkIncremental(arquivo);
+		arquivo.delete();
+
+		benchmarkBrancos("muita indentação", gerarProgramaIndentado(comandos));
+		benchmarkBrancos("muitos comentários", gerarProgramaComentado(comandos));
+
+		benchmarkExpressoes(comandos);
+		benchmarkAninhamento(100000);
+	}
+
+	// --- Palavras reservadas: Hashtable<String, TipoToken> x reconhecimento direto no buffer ---
+
+	private static final String[] PALAVRAS = {
+		"DECLARAR", "PROGRAMA", "INTEGER", "REAL", "LER", "IMPRIMIR", "SE", "ENTAO",
+		"SENAO", "ENQTO", "INICIO", "FINAL", "E", "OU", "FIM", "INI", "PROG"
+	};
+
+	private static void benchmarkPalavrasReservadas() {
+		final Map<String, TipoToken> tabela = new Hashtable<>();
+		for (TipoToken tk : TipoToken.values()) {
+			String grafia = grafia(tk);
+			if (grafia != null) tabela.put(grafia, tk);
+		}
+
+		// buffer com as palavras separadas por espaço, como no fonte
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append(PALAVRAS[i % PALAVRAS.length]).append(' ');
+		}
+		final char[] buf = sb.toString().toCharArray();
+
+		System.out.println("--- Palavras reservadas (" + buf.length + " chars por iteração) ---");
+		medir("Hashtable + new String", 2000, new Runnable() {
+			public void run() {
+				long acc = 0;
+				int ini = 0;
+				for (int i = 0; i < buf.length; i++) {
+					if (buf[i] == ' ') {
+						TipoToken tk = tabela.get(new String(buf, ini, i - ini));
+						acc += tk == null ? -1 : tk.ordinal();
+						ini = i + 1;
+					}
+				}
+				sumidouro += acc;
+			}
+		});
+		medir("switch por tamanho/letra", 2000, new Runnable() {
+			public void run() {
+				long acc = 0;
+				int ini = 0;
+				for (int i = 0; i < buf.length; i++) {
+					if (buf[i] == ' ') {
+						TipoToken tk = AnalisadorLexico.reconhecerPalavra(buf, ini, i - ini);
+						acc += tk == null ? -1 : tk.ordinal();
+						ini = i + 1;
+					}
+				}
+				sumidouro += acc;
+			}
+		});
+		System.out.println();
+	}
+
+	// Grafia de uma palavra reservada, ou null
+	private static String grafia(TipoToken tk) {
+		for (String p : PALAVRAS) {
+			char[] c = p.toCharArray();
+			if (AnalisadorLexico.reconhecerPalavra(c, 0, c.length) == tk) return p;
+		}
+		return null;
+	}
+
+	// --- Tokens de 1 caractere: Hashtable<Character, TipoToken> x tabela de 128 posições ---
+
+	private static void benchmarkTokensSimples() {
+		final Map<Character, TipoToken> tabela = new Hashtable<>();
+		final char[] simbolos = "*/+-[]():".toCharArray();
+		for (char c : simbolos) {
+			tabela.put(c, AnalisadorLexico.tokenSimples(c));
+		}
+		final char[] buf = "a:=(b+c)*d-e/f[g]".toCharArray();
+
+		System.out.println("--- Tokens de 1 caractere ---");
+		medir("Hashtable<Character>", 200000, new Runnable() {
+			public void run() {
+				long acc = 0;
+				for (char c : buf) {
+					TipoToken tk = tabela.get(c);
+					if (tk != null) acc += tk.ordinal();
+				}
+				sumidouro += acc;
+			}
+		});
+		medir("tabela TipoToken[128]", 200000, new Runnable() {
+			public void run() {
+				long acc = 0;
+				for (char c : buf) {
+					TipoToken tk = AnalisadorLexico.tokenSimples(c);
+					if (tk != null) acc += tk.ordinal();
+				}
+				sumidouro += acc;
+			}
+		});
+		System.out.println();
+	}
+
+	// --- Análise léxica completa de um arquivo grande ---
+
+	private static void benchmarkLexico(final File arquivo) {
+		final String nome = arquivo.getPath();
+		System.out.println("--- Análise léxica do arquivo gerado ---");
+		medir("proxToken() com BufferedReader", 1, new Runnable() {
+			public void run() {
+				try {
+					AnalisadorLexico lexico = new AnalisadorLexico(nome);
+					long n = 0;
+					while (lexico.proxToken() != null) n++;
+					lexico.getLdat().fecharArquivo();
+					sumidouro += n;
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		medir("tokenizar() mapeado", 1, new Runnable() {
+			public void run() {
+				try {
+					sumidouro += new AnalisadorLexico(nome, true).tokenizar().getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		medir("tokenizar() sobre bytes UTF-8", 1, new Runnable() {
+			public void run() {
+				try {
+					sumidouro += new AnalisadorLexico(LeitorArquivo.mapearUtf8(nome)).tokenizar().getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		System.out.println();
+	}
+
+	// --- Análise léxica paralela: mesmos tokens e erros do modo sequencial, e o tempo de cada um ---
+
+	private static void benchmarkLexicoParalelo(File arquivo) throws Exception {
+		final String nome = arquivo.getPath();
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final int partes = pool.getParallelism();
+		System.out.println("--- Análise léxica paralela (" + partes + " partes) ---");
+		File[] arquivos = new File(PASTA_TESTES).listFiles();
+		if (arquivos != null) {
+			Arrays.sort(arquivos);
+			for (File teste : arquivos) {
+				if (!teste.getName().endsWith(".gyh")) continue;
+				System.out.printf("  %-34s %s%n", teste.getName(), compararComSequencial(teste.getPath(), pool));
+			}
+		}
+		System.out.printf("  %-34s %s%n", "arquivo gerado", compararComSequencial(nome, pool));
+		// o tempo do tokenizar() em sequência está na seção anterior
+		medir("LexicoParalelo mapeado", 1, new Runnable() {
+			public void run() {
+				try {
+					sumidouro += LexicoParalelo.tokenizar(new LeitorArquivo(nome, true), partes, pool, null).getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		medir("LexicoParalelo sobre bytes UTF-8", 1, new Runnable() {
+			public void run() {
+				try {
+					sumidouro += LexicoParalelo.tokenizar(LeitorArquivo.mapearUtf8(nome), partes, pool, null).getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		System.out.println();
+	}
+
+	// Compara tokens e erros do LexicoParalelo com os do modo sequencial, no modo mapeado e no UTF-8.
+	// Sem tamanho mínimo de pedaço, para que também os arquivos de teste, que são pequenos, sejam cortados
+	private static String compararComSequencial(String nome, ForkJoinPool pool) throws Exception {
+		String resultado = null;
+		for (boolean utf8 : new boolean[] { false, true }) {
+			Diagnosticos errosSequencial = new Diagnosticos(Diagnosticos.SEM_LIMITE);
+			AnalisadorLexico lexico = new AnalisadorLexico(utf8 ? LeitorArquivo.mapearUtf8(nome) : new LeitorArquivo(nome, true));
+			lexico.setModoRecuperacao(true);
+			lexico.setDiagnosticos(errosSequencial);
+			BufferTokens sequencial = lexico.tokenizar();
+
+			Diagnosticos errosParalelo = new Diagnosticos(Diagnosticos.SEM_LIMITE);
+			LeitorArquivo leitor = utf8 ? LeitorArquivo.mapearUtf8(nome) : new LeitorArquivo(nome, true);
+			int pedacos = LexicoParalelo.dividir(leitor, 0, leitor.getTamanho(), PARTES_COMPARACAO, 1).length - 1;
+			BufferTokens paralelo = LexicoParalelo.tokenizar(leitor, PARTES_COMPARACAO, pool, errosParalelo, 1);
+
+			String modo = utf8 ? "UTF-8" : "mapeado";
+			List<String> esperados = descrever(errosSequencial);
+			List<String> obtidos = descrever(errosParalelo);
+			if (!esperados.equals(obtidos)) {
+				return modo + ": ERROS DIFERENTES " + esperados + " x " + obtidos;
+			}
+			if (sequencial.getQuantidade() != paralelo.getQuantidade()) {
+				return modo + ": DIFERENTE: " + sequencial.getQuantidade() + " x " + paralelo.getQuantidade() + " tokens";
+			}
+			for (int i = 0; i < sequencial.getQuantidade(); i++) {
+				String esperado = descrever(sequencial, i);
+				String obtido = descrever(paralelo, i);
+				if (!esperado.equals(obtido)) {
+					return modo + ": DIFERENTE: " + esperado + " x " + obtido;
+				}
+			}
+			if (resultado == null) {
+				resultado = "mesmos " + sequencial.getQuantidade() + " tokens (" + pedacos + " pedaços)";
+				if (!esperados.isEmpty()) resultado += " e " + esperados.size() + " erro(s)";
+			}
+		}
+		return resultado + ", mapeado e UTF-8";
+	}
+
+	private static String descrever(BufferTokens tokens, int i) {
+		return tokens.getTipo(i) + " " + tokens.getInicio(i) + "+" + tokens.getTamanho(i)
+				+ " @" + tokens.getLinha(i) + ":" + tokens.getColuna(i) + " '" + tokens.getLexema(i) + "'";
+	}
+
+	private static List<String> descrever(Diagnosticos diagnosticos) {
+		List<String> mensagens = new ArrayList<>();
+		for (Diagnostico d : diagnosticos.getDiagnosticos()) mensagens.add(d.toString());
+		return mensagens;
+	}
+
+	// Tokens do fonte para os benchmarks do sintático; -Dgyh.lexicoParalelo=true usa o LexicoParalelo
+	private static BufferTokens tokenizar(String nome) throws Exception {
+		if (Boolean.getBoolean("gyh.lexicoParalelo")) {
+			return LexicoParalelo.tokenizar(nome);
+		}
+		return new AnalisadorLexico(nome, true).tokenizar();
+	}
+
+	// --- Edição no meio do arquivo: tokenizar() de novo x LexicoIncremental.editar ---
+
+	private static void benchmarkIncremental(File arquivo) throws Exception {
+		final BufferTokens tokens = tokenizar(arquivo.getPath());
+		final int offset = tokens.getInicio(tokens.getQuantidade() / 2);
+		final String inserido = "contador := contador + 1\n";
+		System.out.println("--- Edição de uma linha no meio do arquivo ---");
+		medir("tokenizar() do fonte editado", 1, new Runnable() {
+			public void run() {
+				try {
+					char[] fonte = tokens.getFonte().getFonte();
+					int fim = tokens.getFonte().getTamanho();
+					char[] novo = new char[fim + inserido.length()];
+					System.arraycopy(fonte, 0, novo, 0, offset);
+					inserido.getChars(0, inserido.length(), novo, offset);
+					System.arraycopy(fonte, offset, novo, offset + inserido.length(), fim - offset);
+					sumidouro += new AnalisadorLexico(new LeitorArquivo(novo, 0, novo.length)).tokenizar().getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		final LexicoIncremental incremental = new LexicoIncremental(tokens);
+		medir("LexicoIncremental.editar e desfazer", 1, new Runnable() {
+			public void run() {
+				try {
+					incremental.editar(offset, 0, inserido);
+					incremental.editar(offset, inserido.length(), "");
+					sumidouro += incremental.getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		// edições alternadas no início e no fim: as lacunas atravessam o arquivo a cada vez
+		final int perto = tokens.getInicio(tokens.getQuantidade() / 10);
+		final int longe = tokens.getInicio(tokens.getQuantidade() * 9 / 10);
+		medir("LexicoIncremental longe da lacuna", 1, new Runnable() {
+			public void run() {
+				try {
+					incremental.editar(perto, 0, inserido);
+					incremental.editar(perto, inserido.length(), "");
+					incremental.editar(longe, 0, inserido);
+					incremental.editar(longe, inserido.length(), "");
+					sumidouro += incremental.getQuantidade();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		System.out.println();
+	}
+
+	// --- Espaços e comentários: leitura char a char x varredura em blocos (LeitorArquivo.pularBrancos) ---
+
+	private static void benchmarkBrancos(String titulo, String conteudo) throws IOException {
+		File arquivo = gerarArquivo(conteudo);
+		final String nome = arquivo.getPath();
+		System.out.println("--- Espaços/comentários: programa com " + titulo + " (" + arquivo.length() + " bytes) ---");
+		medir("pular char a char (lerProxCaracter)", 1, new Runnable() {
+			public void run() {
+				try {
+					LeitorArquivo leitor = new LeitorArquivo(nome, true);
+					long n = 0;
+					while (true) {
+						pularCharAChar(leitor);
+						if (leitor.lerProxCaracter() == -1) break;
+						n++;
+					}
+					sumidouro += n;
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		medir("pularBrancos() em blocos", 1, new Runnable() {
+			public void run() {
+				try {
+					LeitorArquivo leitor = new LeitorArquivo(nome, true);
+					long n = 0;
+					while (true) {
+						leitor.pularBrancos();
+						if (leitor.lerProxCaracter() == -1) break;
+						n++;
+					}
+					sumidouro += n;
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		benchmarkLexico(arquivo);
+		arquivo.delete();
+	}
+
+	// --- Expressões: cadeia recursiva (expressaoAritmetica → termo → fator) x precedência com pilhas ---
+
+	private static void benchmarkExpressoes(int comandos) throws Exception {
+		File arquivo = gerarArquivo(gerarProgramaExpressoes(comandos / 10));
+		final BufferTokens tokens = tokenizar(arquivo.getPath());
+		arquivo.delete();
+		System.out.println("--- Análise sintática de expressões longas (" + tokens.getQuantidade() + " tokens) ---");
+		for (final boolean recursivas : new boolean[] { true, false }) {
+			medir(recursivas ? "cadeia recursiva" : "precedência (pilhas)", 1, new Runnable() {
+				public void run() {
+					try {
+						AnalisadorSintatico sintatico = new AnalisadorSintatico(tokens);
+						sintatico.setExpressoesRecursivas(recursivas);
+						sintatico.analisar();
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+		}
+
+		// parênteses profundos: a cadeia recursiva gasta vários quadros de pilha por nível
+		arquivo = gerarArquivo(gerarProgramaParenteses(20000));
+		BufferTokens profundo = tokenizar(arquivo.getPath());
+		arquivo.delete();
+		for (boolean recursivas : new boolean[] { true, false }) {
+			AnalisadorSintatico sintatico = new AnalisadorSintatico(profundo);
+			sintatico.setExpressoesRecursivas(recursivas);
+			String resultado;
+			try {
+				sintatico.analisar();
+				resultado = "ok";
+			} catch (StackOverflowError e) {
+				resultado = "StackOverflowError";
+			}
+			System.out.printf("  %-34s 20000 níveis de parênteses: %s%n", recursivas ? "cadeia recursiva" : "precedência (pilhas)", resultado);
+		}
+		System.out.println();
+	}
+
+	// --- Comandos aninhados: descida recursiva x pilha de quadros, e o percurso da ArenaAst ---
+
+	private static void benchmarkAninhamento(int niveis) throws Exception {
+		File arquivo = gerarArquivo(gerarProgramaAninhado(niveis));
+		BufferTokens tokens = tokenizar(arquivo.getPath());
+		arquivo.delete();
+		System.out.println("--- " + niveis + " níveis de SE/ENQTO/INICIO aninhados (" + tokens.getQuantidade() + " tokens) ---");
+		for (boolean recursivos : new boolean[] { true, false }) {
+			AnalisadorSintatico sintatico = new AnalisadorSintatico(tokens, true);
+			sintatico.setComandosRecursivos(recursivos);
+			String resultado;
+			try {
+				long inicio = System.nanoTime();
+				sintatico.analisar();
+				resultado = String.format("ok (%.2f ms)", (System.nanoTime() - inicio) / 1e6);
+			} catch (StackOverflowError e) {
+				resultado = "StackOverflowError";
+			}
+			System.out.printf("  %-34s %s%n", recursivos ? "descida recursiva" : "pilha de quadros", resultado);
+			if (recursivos) continue;
+
+			final int[] visitados = new int[1];
+			sintatico.getAst().visitar(sintatico.getAst().getRaiz(), new VisitanteAst() {
+				public boolean entrar(ArenaAst ast, int no) {
+					visitados[0]++;
+					return true;
+				}
+
+				public void sair(ArenaAst ast, int no) {
+				}
+			});
+			System.out.printf("  %-34s %d nós%n", "ArenaAst.visitar", visitados[0]);
+		}
+		System.out.println();
+	}
+
+	// Referência: o laço de AnalisadorLexico.pularEspacos() usado com BufferedReader
+	private static void pularCharAChar(LeitorArquivo leitor) throws IOException {
+		int c;
+		while (true) {
+			c = leitor.lerProxCaracter();
+			if (c == -1) { leitor.devolverCaracter(c); return; }
+			if (c == '#') {
+				int d;
+				while ((d = leitor.lerProxCaracter()) != -1 && d != '\n') {
+					// consome
+				}
+				continue;
+			}
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\r') continue;
+			leitor.devolverCaracter(c);
+			return;
+		}
+	}
+
+	/**
+	 * Executa 'tarefa' (repetida 'vezes' por medição) com aquecimento e imprime o melhor tempo e a média.
+	 */
+	static void medir(String nome, int vezes, Runnable tarefa) {
+		for (int i = 0; i < AQUECIMENTO; i++) {
+			for (int j = 0; j < vezes; j++) tarefa.run();
+		}
+		long melhor = Long.MAX_VALUE;
+		long total = 0;
+		for (int i = 0; i < REPETICOES; i++) {
+			long ini = System.nanoTime();
+			for (int j = 0; j < vezes; j++) tarefa.run();
+			long t = System.nanoTime() - ini;
+			melhor = Math.min(melhor, t);
+			total += t;
+		}
+		System.out.printf("  %-34s melhor %10.3f ms   média %10.3f ms%n", nome, melhor / 1e6, total / 1e6 / REPETICOES);
+	}
+
+	/**
+	 * Gera um programa GYH válido com a quantidade pedida de comandos, misturando todos os tipos de token.
+	 */
+	static String gerarPrograma(int comandos) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("# Programa gerado para benchmark\n");
+		sb.append("[DECLARAR]\n");
+		sb.append("contador:INTEGER\n");
+		sb.append("total:REAL\n");
+		sb.append("limite:INTEGER\n");
+		sb.append("[PROGRAMA]\n");
+		sb.append("LER limite\n");
+		for (int i = 0; i < comandos; i++) {
+			switch (i % 5) {
+				case 0:
+					sb.append("contador := contador + ").append(i % 97).append(" * (limite - 1)\n");
+					break;
+				case 1:
+					sb.append("# comentário do comando ").append(i).append('\n');
+					sb.append("total := total / 2.5 + contador\n");
+					break;
+				case 2:
+					sb.append("SE contador >= limite E total != 0 ENTAO contador := 0 SENAO IMPRIMIR total\n");
+					break;
+				case 3:
+					sb.append("ENQTO contador < limite OU total <= 1.0\n");
+					sb.append("INICIO\n");
+					sb.append("    contador := contador + 1\n");
+					sb.append("    IMPRIMIR \"passo\"\n");
+					sb.append("FINAL\n");
+					break;
+				default:
+					sb.append("IMPRIMIR contador\n");
+					break;
+			}
+		}
+		return sb.toString();
+	}
+
+	// Programa com blocos INICIO/FINAL aninhados e indentação de 4 espaços por nível
+	static String gerarProgramaIndentado(int comandos) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[DECLARAR]\n");
+		sb.append("contador:INTEGER\n");
+		sb.append("[PROGRAMA]\n");
+		int profundidade = 8;
+		for (int i = 0; i < comandos / profundidade; i++) {
+			for (int nivel = 0; nivel < profundidade; nivel++) {
+				indentar(sb, nivel).append("ENQTO contador < ").append(nivel).append('\n');
+				indentar(sb, nivel).append("INICIO\n");
+			}
+			indentar(sb, profundidade).append("contador := contador + 1\n");
+			for (int nivel = profundidade - 1; nivel >= 0; nivel--) {
+				indentar(sb, nivel).append("FINAL\n");
+			}
+		}
+		return sb.toString();
+	}
+
+	private static StringBuilder indentar(StringBuilder sb, int nivel) {
+		for (int i = 0; i < nivel * 4; i++) sb.append(' ');
+		return sb;
+	}
+
+	// Programa em que a maior parte do texto são comentários
+	static String gerarProgramaComentado(int comandos) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[DECLARAR]\n");
+		sb.append("contador:INTEGER # contador principal do laço gerado automaticamente\n");
+		sb.append("[PROGRAMA]\n");
+		for (int i = 0; i < comandos; i++) {
+			sb.append("# ------------------------------------------------------------------\n");
+			sb.append("# Comando ").append(i).append(": incrementa o contador e imprime o valor atual\n");
+			sb.append("contador := contador + 1 # soma um ao contador\n");
+			sb.append("IMPRIMIR contador        # mostra o resultado parcial\n");
+		}
+		return sb.toString();
+	}
+
+	// Programa com expressões aritméticas e condições longas, com parênteses em vários níveis
+	static String gerarProgramaExpressoes(int comandos) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[DECLARAR]\n");
+		sb.append("a:INTEGER\n");
+		sb.append("b:REAL\n");
+		sb.append("[PROGRAMA]\n");
+		for (int i = 0; i < comandos; i++) {
+			sb.append("a := a + 1");
+			for (int j = 0; j < 8; j++) {
+				sb.append(j % 2 == 0 ? " * (b - " : " / (a + ").append(j).append(" * b)");
+			}
+			sb.append('\n');
+			sb.append("SE a < b * 2 E (b >= a - 1 OU a != 3) OU a + b * (a - 1) == b ENTAO IMPRIMIR a\n");
+		}
+		return sb.toString();
+	}
+
+	// Uma única atribuição com 'niveis' parênteses aninhados
+	static String gerarProgramaParenteses(int niveis) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[DECLARAR]\n");
+		sb.append("a:INTEGER\n");
+		sb.append("[PROGRAMA]\n");
+		sb.append("a := ");
+		for (int i = 0; i < niveis; i++) sb.append('(');
+		sb.append('a');
+		for (int i = 0; i < niveis; i++) sb.append(" + 1)");
+		sb.append('\n');
+		return sb.toString();
+	}
+
+	// Um único comando com 'niveis' SE/ENQTO/INICIO aninhados, alternados
+	static String gerarProgramaAninhado(int niveis) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("[DECLARAR]\n");
+		sb.append("a:INTEGER\n");
+		sb.append("[PROGRAMA]\n");
+		for (int i = 0; i < niveis; i++) {
+			switch (i % 3) {
+				case 0:
+					sb.append("SE a < 1 ENTAO\n");
+					break;
+				case 1:
+					sb.append("ENQTO a > 0\n");
+					break;
+				default:
+					sb.append("INICIO\n");
+					break;
+			}
+		}
+		sb.append("a := a + 1\n");
+		for (int i = niveis - 1; i >= 0; i--) {
+			if (i % 3 == 2) sb.append("FINAL\n");
+			else if (i % 3 == 0) sb.append("SENAO IMPRIMIR a\n");
+		}
+		return sb.toString();
+	}
+
+	static File gerarArquivo(String conteudo) throws IOException {
+		File arquivo = File.createTempFile("benchmark", ".gyh");
+		try (PrintWriter writer = new PrintWriter(arquivo)) {
+			writer.print(conteudo);
+		}
+		return arquivo;
+	}
+}
@@ -0,0 +1,341 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * Microbenchmark da análise sintática do GyhLangParser: LL completo x duas fases (SLL, com LL só
+ * quando o SLL falha), sobre os programas de src/Testess e sobre programas grandes gerados. No final,
+ * o heap ocupado pelos tokens de um arquivo grande com CharStreams x CharStreamMapeado + FabricaTokens,
+ * e a análise léxica em sequência x LexicoParaleloAntlr (os tokens e erros dos dois são comparados).
+ *
+ * Uso: java BenchmarkParsing [comandos]
+ */
+public class BenchmarkParsing {
+
+    private static final String PASTA_TESTES = "src/Testess";
+    private static final int AQUECIMENTO = 5;
+    private static final int REPETICOES = 10;
+    // pedaços na comparação com o modo sequencial, para que os cortes aconteçam com qualquer número de núcleos
+    private static final int PARTES_COMPARACAO = 8;
+
+    // evita que o JIT descarte o trabalho medido
+    private static volatile int sumidouro;
+
+    public static void main(String[] args) throws Exception {
+        int comandos = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        System.out.println("========== BENCHMARK PARSING (ANTLR) ==========\n");
+        benchmarkTestess();
+        benchmarkGerado("Programa gerado sem SENAO", gerarPrograma(comandos, false));
+        // o SLL resolve o conflito do SENAO pendente pela primeira alternativa de comandoCondicao
+        // (sem SENAO) e para antes do fim: todo programa com SENAO acaba no LL
+        benchmarkGerado("Programa gerado com SENAO", gerarPrograma(comandos, true));
+        // erro no último comando: o SLL percorre o arquivo inteiro e o LL analisa tudo de novo
+        benchmarkGerado("Programa gerado com erro no final", gerarPrograma(comandos, false) + "SE a ENTAO\n");
+        benchmarkLote(2000);
+        benchmarkMemoria(comandos * 10);
+        benchmarkLexicoParalelo(comandos * 10);
+    }
+
+    private static void benchmarkTestess() throws IOException {
+        File[] arquivos = new File(PASTA_TESTES).listFiles();
+        if (arquivos == null) {
+            System.out.println("Pasta " + PASTA_TESTES + " não encontrada\n");
+            return;
+        }
+        Arrays.sort(arquivos);
+        final List<CommonTokenStream> fluxos = new ArrayList<>();
+        System.out.println("--- " + PASTA_TESTES + " ---");
+        for (File arquivo : arquivos) {
+            if (!arquivo.getName().endsWith(".gyh")) continue;
+            CommonTokenStream tokens = tokenizar(CharStreams.fromFileName(arquivo.getPath()));
+            if (tokens == null) continue;   // erro léxico: não chega ao parser
+            ParsingDuasFases parsing = analisar(ParsingDuasFases.Modo.SLL_LL, tokens);
+            System.out.printf("  %-34s %s%n", arquivo.getName(), parsing.getModoUsado());
+            fluxos.add(tokens);
+        }
+        for (final ParsingDuasFases.Modo modo : ParsingDuasFases.Modo.values()) {
+            medir(modo.toString(), 100, new Runnable() {
+                public void run() {
+                    for (CommonTokenStream tokens : fluxos) analisar(modo, tokens);
+                }
+            });
+        }
+        System.out.println();
+    }
+
+    private static void benchmarkGerado(String titulo, String programa) {
+        final CommonTokenStream tokens = tokenizar(CharStreams.fromString(programa));
+        System.out.println("--- " + titulo + " (" + tokens.size() + " tokens) ---");
+        for (final ParsingDuasFases.Modo modo : ParsingDuasFases.Modo.values()) {
+            // primeira análise com o cache de DFA vazio: o custo da predição aparece inteiro
+            new GyhLangParser(tokens).getInterpreter().clearDFA();
+            long inicio = System.nanoTime();
+            ParsingDuasFases parsing = analisar(modo, tokens);
+            System.out.printf("  %-34s primeira %8.3f ms   (predição %s)%n", modo,
+                    (System.nanoTime() - inicio) / 1e6, parsing.getModoUsado());
+            medir(modo.toString(), 1, new Runnable() {
+                public void run() {
+                    analisar(modo, tokens);
+                }
+            });
+        }
+        System.out.println();
+    }
+
+    // Muitos arquivos pequenos: lexer/parser novos por arquivo x ContextoCompilacao da thread
+    private static void benchmarkLote(int quantidade) {
+        final List<CharStream> entradas = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            entradas.add(CharStreams.fromString(gerarPrograma(5 + i % 50, i % 4 == 0)));
+        }
+        System.out.println("--- Lote de " + quantidade + " arquivos pequenos (léxico + sintático) ---");
+        medir("lexer/parser novos por arquivo", 1, new Runnable() {
+            public void run() {
+                for (CharStream entrada : entradas) {
+                    entrada.seek(0);
+                    GyhLangLexer lexer = new GyhLangLexer(entrada);
+                    lexer.removeErrorListeners();
+                    CommonTokenStream tokens = new CommonTokenStream(lexer);
+                    tokens.fill();
+                    ParsingDuasFases parsing = new ParsingDuasFases(ParsingDuasFases.Modo.SLL_LL);
+                    sumidouro += parsing.analisar(new GyhLangParser(tokens), new BaseErrorListener()).getChildCount();
+                }
+            }
+        });
+        medir("ContextoCompilacao", 1, new Runnable() {
+            public void run() {
+                ContextoCompilacao contexto = ContextoCompilacao.atual();
+                ParsingDuasFases parsing = new ParsingDuasFases(ParsingDuasFases.Modo.SLL_LL);
+                BaseErrorListener listener = new BaseErrorListener();
+                for (CharStream entrada : entradas) {
+                    entrada.seek(0);
+                    contexto.tokenizar(entrada, listener);
+                    sumidouro += parsing.analisar(contexto.parser(), listener).getChildCount();
+                }
+            }
+        });
+        System.out.println("  estados nos DFAs: " + ContextoCompilacao.atual().getEstadosDfa());
+        System.out.println();
+    }
+
+    // Heap ocupado pela entrada e pelos tokens de um arquivo grande, lido com CharStreams ou mapeado
+    private static void benchmarkMemoria(int comandos) throws IOException {
+        File arquivo = File.createTempFile("benchmark", ".gyh");
+        arquivo.deleteOnExit();
+        try (Writer saida = new OutputStreamWriter(new FileOutputStream(arquivo), StandardCharsets.UTF_8)) {
+            saida.write(gerarPrograma(comandos, true));
+        }
+        System.out.printf("--- Memória: arquivo de %.1f MB ---%n", arquivo.length() / 1e6);
+        for (int i = 0; i < 2; i++) {
+            boolean mapeado = i == 1;
+            long antes = heapUsado();
+            long inicio = System.nanoTime();
+            CharStream entrada = mapeado ? CharStreamMapeado.abrir(arquivo.getPath())
+                    : CharStreams.fromFileName(arquivo.getPath());
+            GyhLangLexer lexer = new GyhLangLexer(entrada);
+            lexer.removeErrorListeners();
+            if (mapeado) lexer.setTokenFactory(FabricaTokens.PADRAO);
+            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            tokens.fill();
+            double ms = (System.nanoTime() - inicio) / 1e6;
+            long depois = heapUsado();
+            System.out.printf("  %-34s %8.1f MB   %d tokens   léxico %8.3f ms%n",
+                    mapeado ? "CharStreamMapeado + FabricaTokens" : "CharStreams + CommonToken",
+                    (depois - antes) / 1e6, tokens.size(), ms);
+            sumidouro += tokens.get(tokens.size() - 1).getType();
+        }
+        System.out.println();
+    }
+
+    // Análise léxica em sequência x LexicoParaleloAntlr: os mesmos tokens e erros, e o tempo de cada um
+    private static void benchmarkLexicoParalelo(int comandos) throws IOException, InterruptedException {
+        final ForkJoinPool pool = ForkJoinPool.commonPool();
+        final int partes = pool.getParallelism();
+        System.out.println("--- Análise léxica paralela (" + partes + " partes) ---");
+        File[] arquivos = new File(PASTA_TESTES).listFiles();
+        if (arquivos != null) {
+            Arrays.sort(arquivos);
+            for (File arquivo : arquivos) {
+                if (!arquivo.getName().endsWith(".gyh")) continue;
+                CharStreamMapeado entrada = CharStreamMapeado.abrir(arquivo.getPath());
+                System.out.printf("  %-34s %s%n", arquivo.getName(), compararComSequencial(entrada, pool));
+            }
+        }
+
+        File arquivo = File.createTempFile("benchmark", ".gyh");
+        arquivo.deleteOnExit();
+        try (Writer saida = new OutputStreamWriter(new FileOutputStream(arquivo), StandardCharsets.UTF_8)) {
+            saida.write(gerarPrograma(comandos, true));
+        }
+        final CharStreamMapeado entrada = CharStreamMapeado.abrir(arquivo.getPath());
+        System.out.printf("  %-34s %s%n", String.format("arquivo gerado (%.1f MB)", arquivo.length() / 1e6),
+                compararComSequencial(entrada, pool));
+        medir("GyhLangLexer em sequência", 1, new Runnable() {
+            public void run() {
+                sumidouro += tokenizarMapeado(entrada, new BaseErrorListener()).size();
+            }
+        });
+        medir("LexicoParaleloAntlr", 1, new Runnable() {
+            public void run() {
+                try {
+                    sumidouro += LexicoParaleloAntlr.tokenizar(entrada, partes, pool, new BaseErrorListener()).size();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        System.out.println();
+    }
+
+    // Compara os tokens e os erros do LexicoParaleloAntlr com os do modo sequencial. Sem tamanho mínimo
+    // de pedaço, para que também os arquivos de teste, que são pequenos, sejam cortados
+    private static String compararComSequencial(CharStreamMapeado entrada, ForkJoinPool pool)
+            throws InterruptedException {
+        List<String> errosSequencial = new ArrayList<>();
+        CommonTokenStream sequencial = tokenizarMapeado(entrada, coletor(errosSequencial));
+        List<String> errosParalelo = new ArrayList<>();
+        CommonTokenStream paralelo = LexicoParaleloAntlr.tokenizar(entrada, PARTES_COMPARACAO, pool,
+                coletor(errosParalelo), 1);
+        if (!errosSequencial.equals(errosParalelo)) {
+            return "ERROS DIFERENTES " + errosSequencial + " x " + errosParalelo;
+        }
+        if (sequencial.size() != paralelo.size()) {
+            return "DIFERENTE: " + sequencial.size() + " x " + paralelo.size() + " tokens";
+        }
+        for (int i = 0; i < sequencial.size(); i++) {
+            Token esperado = sequencial.get(i);
+            Token obtido = paralelo.get(i);
+            if (!esperado.toString().equals(obtido.toString())) {
+                return "DIFERENTE: " + esperado + " x " + obtido;
+            }
+        }
+        int pedacos = LexicoParaleloAntlr.dividir(entrada, PARTES_COMPARACAO, 1).length - 1;
+        String resultado = "mesmos " + sequencial.size() + " tokens (" + pedacos + " pedaços)";
+        return errosSequencial.isEmpty() ? resultado : resultado + " e " + errosSequencial.size() + " erro(s)";
+    }
+
+    // Como no Main: GyhLangLexer sobre a entrada mapeada, com FabricaTokens
+    private static CommonTokenStream tokenizarMapeado(CharStreamMapeado entrada, ANTLRErrorListener listener) {
+        entrada.seek(0);
+        GyhLangLexer lexer = new GyhLangLexer(entrada);
+        lexer.setTokenFactory(FabricaTokens.PADRAO);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(listener);
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        return tokens;
+    }
+
+    private static ANTLRErrorListener coletor(final List<String> erros) {
+        return new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                erros.add(line + ":" + charPositionInLine + " " + msg);
+            }
+        };
+    }
+
+    private static long heapUsado() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static ParsingDuasFases analisar(ParsingDuasFases.Modo modo, CommonTokenStream tokens) {
+        tokens.seek(0);   // o construtor do parser não volta o fluxo ao início
+        ParsingDuasFases parsing = new ParsingDuasFases(modo);
+        sumidouro += parsing.analisar(new GyhLangParser(tokens), new BaseErrorListener()).getChildCount();
+        return parsing;
+    }
+
+    // Tokens já lidos por completo, para medir só o parser; null se houver erro léxico
+    private static CommonTokenStream tokenizar(CharStream programa) {
+        GyhLangLexer lexer = new GyhLangLexer(programa);
+        lexer.removeErrorListeners();
+        final boolean[] erro = new boolean[1];
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                erro[0] = true;
+            }
+        });
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        tokens.fill();
+        return erro[0] ? null : tokens;
+    }
+
+    /**
+     * Executa 'tarefa' (repetida 'vezes' por medição) com aquecimento e imprime o melhor tempo e a média.
+     */
+    static void medir(String nome, int vezes, Runnable tarefa) {
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            for (int j = 0; j < vezes; j++) tarefa.run();
+        }
+        long melhor = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < REPETICOES; i++) {
+            long ini = System.nanoTime();
+            for (int j = 0; j < vezes; j++) tarefa.run();
+            long t = System.nanoTime() - ini;
+            melhor = Math.min(melhor, t);
+            total += t;
+        }
+        System.out.printf("  %-34s melhor %10.3f ms   média %10.3f ms%n", nome, melhor / 1e6, total / 1e6 / REPETICOES);
+    }
+
+    /**
+     * Gera um programa GYH válido com a quantidade pedida de comandos, com SE (e SENAO, se pedido),
+     * ENQTO e blocos aninhados e expressões com parênteses.
+     */
+    static String gerarPrograma(int comandos, boolean comSenao) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Programa gerado para benchmark\n");
+        sb.append("[DECLARAR]\n");
+        sb.append("a:INTEGER\n");
+        sb.append("b:REAL\n");
+        sb.append("[PROGRAMA]\n");
+        for (int i = 0; i < comandos; i++) {
+            switch (i % 5) {
+                case 0:
+                    sb.append("a := (a + ").append(i).append(") * 2 - a / 3\n");
+                    break;
+                case 1:
+                    sb.append("SE a < ").append(i).append(" E (b >= a OU a != 1) ENTAO IMPRIMIR a\n");
+                    break;
+                case 2:
+                    if (comSenao) {
+                        sb.append("SE a == b ENTAO SE a > 1 ENTAO b := b * 1.5 SENAO IMPRIMIR \"nada\" SENAO LER a\n");
+                    } else {
+                        sb.append("SE a == b ENTAO SE a > 1 ENTAO b := b * 1.5\n");
+                    }
+                    break;
+                case 3:
+                    sb.append("ENQTO a > 0\nINICIO\n    a := a - 1\n    SE a == 2 ENTAO IMPRIMIR b\nFINAL\n");
+                    break;
+                default:
+                    sb.append("LER b\n");
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+}
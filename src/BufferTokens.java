@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * Sequência de tokens guardada em vetores paralelos de primitivos (tipo, início, tamanho).
+ * Nenhum objeto Token ou String é criado durante a tokenização; o lexema só é montado
+ * a partir do fonte, e a linha/coluna só é calculada pela TabelaLinhas, quando alguém os pede.
+ */
+public class BufferTokens {
+
+	private static final TipoToken[] TIPOS = TipoToken.values();
+	private static final int CAPACIDADE_INICIAL = 1024;
+
+	private final LeitorArquivo fonte;
+	private byte[] tipos;
+	private int[] inicios;
+	private int[] tamanhos;
+	private int quantidade;
+
+	public BufferTokens(LeitorArquivo fonte) {
+		this.fonte = fonte;
+		tipos = new byte[CAPACIDADE_INICIAL];
+		inicios = new int[CAPACIDADE_INICIAL];
+		tamanhos = new int[CAPACIDADE_INICIAL];
+	}
+
+	public void adicionar(TipoToken tipo, int inicio, int tamanho) {
+		if (quantidade == tipos.length) crescer();
+		tipos[quantidade] = (byte) tipo.ordinal();
+		inicios[quantidade] = inicio;
+		tamanhos[quantidade] = tamanho;
+		quantidade++;
+	}
+
+	/**
+	 * Acrescenta os tokens de outro buffer sobre o mesmo fonte (os offsets são absolutos).
+	 * @param incluirEof se false, o EOF final de 'outro' não é copiado.
+	 */
+	public void anexar(BufferTokens outro, boolean incluirEof) {
+		int n = outro.quantidade;
+		if (!incluirEof && n > 0 && outro.getTipo(n - 1) == TipoToken.EOF) n--;
+		copiar(outro, 0, n, 0);
+	}
+
+	/**
+	 * Acrescenta os tokens [de, ate) de outro buffer, somando 'deslocamento' aos offsets
+	 * (usado quando o fonte foi editado antes deles).
+	 */
+	public void copiar(BufferTokens outro, int de, int ate, int deslocamento) {
+		int n = ate - de;
+		while (quantidade + n > tipos.length) crescer();
+		System.arraycopy(outro.tipos, de, tipos, quantidade, n);
+		System.arraycopy(outro.tamanhos, de, tamanhos, quantidade, n);
+		if (deslocamento == 0) {
+			System.arraycopy(outro.inicios, de, inicios, quantidade, n);
+		} else {
+			for (int i = 0; i < n; i++) {
+				inicios[quantidade + i] = outro.inicios[de + i] + deslocamento;
+			}
+		}
+		quantidade += n;
+	}
+
+	// Índice do primeiro token que começa em 'offset' ou depois (busca binária)
+	public int buscar(int offset) {
+		int lo = 0;
+		int hi = quantidade;
+		while (lo < hi) {
+			int meio = (lo + hi) >>> 1;
+			if (inicios[meio] < offset) lo = meio + 1;
+			else hi = meio;
+		}
+		return lo;
+	}
+
+	private void crescer() {
+		int nova = tipos.length * 2;
+		tipos = Arrays.copyOf(tipos, nova);
+		inicios = Arrays.copyOf(inicios, nova);
+		tamanhos = Arrays.copyOf(tamanhos, nova);
+	}
+
+	public int getQuantidade() {
+		return quantidade;
+	}
+
+	public TipoToken getTipo(int i) {
+		return TIPOS[tipos[i]];
+	}
+
+	public int getInicio(int i) {
+		return inicios[i];
+	}
+
+	public int getTamanho(int i) {
+		return tamanhos[i];
+	}
+
+	public int getLinha(int i) {
+		return fonte.getTabelaLinhas().linha(inicios[i]);
+	}
+
+	public int getColuna(int i) {
+		return fonte.getTabelaLinhas().coluna(inicios[i]);
+	}
+
+	// Lexema resolvido sob demanda a partir do fonte
+	public String getLexema(int i) {
+		if (tamanhos[i] == 0) return "";
+		return fonte.lexema(inicios[i], tamanhos[i]);
+	}
+
+	// Materializa um Token, para quem ainda trabalha com objetos
+	public Token getToken(int i) {
+		return new Token(getLexema(i), getTipo(i), getLinha(i), getColuna(i));
+	}
+
+	public LeitorArquivo getFonte() {
+		return fonte;
+	}
+
+	// Percorre o buffer do início como uma FonteTokens (por exemplo para uma JanelaTokens)
+	public FonteTokens cursor() {
+		return new Cursor();
+	}
+
+	private class Cursor implements FonteTokens {
+		private int atual = -1;
+
+		@Override
+		public TipoToken proxTipo() {
+			if (atual + 1 >= quantidade) return null;
+			atual++;
+			return getTipo(atual);
+		}
+
+		@Override
+		public int getInicioToken() {
+			return inicios[atual];
+		}
+
+		@Override
+		public int getTamanhoToken() {
+			return tamanhos[atual];
+		}
+
+		@Override
+		public int getLinhaToken() {
+			return getLinha(atual);
+		}
+
+		@Override
+		public int getColunaToken() {
+			return getColuna(atual);
+		}
+
+		@Override
+		public String getLexemaToken() {
+			return getLexema(atual);
+		}
+
+		// o fonte é indexado, então a JanelaTokens não pede os chars: a cópia só serve aos outros usos
+		@Override
+		public char[] getBufferLexemaToken() {
+			return getLexema(atual).toCharArray();
+		}
+
+		@Override
+		public int getInicioBufferLexemaToken() {
+			return 0;
+		}
+
+		@Override
+		public LeitorArquivo getLeitorIndexado() {
+			return fonte;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * CharStream sobre o arquivo mapeado com FileChannel.map, lido direto dos bytes UTF-8 (ou ASCII).
+ *
+ * CharStreams.fromFileName decodifica o arquivo inteiro para um vetor de code points no heap (4 bytes
+ * por caractere); aqui o conteúdo fica fora do heap e só o texto pedido em getText é decodificado.
+ * Os índices continuam sendo code points, como o GyhLangLexer espera: em um arquivo só ASCII o índice
+ * é o próprio offset; com caracteres de vários bytes o stream anda a partir da posição atual e, para
+ * saltos longos, de pontos de referência guardados a cada 1024 code points.
+ *
+ * A leitura inicial também guarda o início de cada linha, para que a linha e a coluna de um índice
+ * sejam calculadas sob demanda (ver FabricaTokens). Bytes que não formam UTF-8 válido viram U+FFFD
+ * da mesma forma que no decodificador usado por CharStreams.
+ */
+public class CharStreamMapeado implements CharStream {
+
+    private static final int PASSO_REFERENCIA = 1024;
+    private static final int SUBSTITUTO = 0xFFFD;
+
+    private final ByteBuffer bytes;
+    private final int limite;
+    private final String nome;
+    private final boolean ascii;
+    private final int tamanho;        // em code points
+    private final int[] referencias;  // offset em bytes do code point i * PASSO_REFERENCIA
+    private final int[] iniciosLinha; // índice (code point) do início de cada linha
+    private final int linhas;
+
+    // posição atual: índice em code points e offset em bytes
+    private int indice;
+    private int posicao;
+
+    private CharStreamMapeado(ByteBuffer bytes, String nome) {
+        this.bytes = bytes;
+        this.limite = bytes.limit();
+        this.nome = nome;
+
+        // uma passada: conta code points, guarda as referências e os inícios de linha
+        int[] refs = new int[16];
+        int[] inicios = new int[64];
+        int quantidadeLinhas = 1;
+        int cp = 0;
+        int pos = 0;
+        boolean soAscii = true;
+        while (pos < limite) {
+            if ((cp & (PASSO_REFERENCIA - 1)) == 0) {
+                int r = cp / PASSO_REFERENCIA;
+                if (r == refs.length) refs = Arrays.copyOf(refs, r * 2);
+                refs[r] = pos;
+            }
+            int b = bytes.get(pos);
+            if (b >= 0) {
+                pos++;
+                if (b == '\n') {
+                    if (quantidadeLinhas == inicios.length) inicios = Arrays.copyOf(inicios, quantidadeLinhas * 2);
+                    inicios[quantidadeLinhas++] = cp + 1;
+                }
+            } else {
+                soAscii = false;
+                pos += Math.abs(tamanhoSequencia(pos));
+            }
+            cp++;
+        }
+        this.ascii = soAscii;
+        this.tamanho = cp;
+        this.referencias = soAscii ? null : refs;
+        this.iniciosLinha = inicios;
+        this.linhas = quantidadeLinhas;
+    }
+
+    // Visão de [inicio, fim) de 'origem' (ver trecho)
+    private CharStreamMapeado(CharStreamMapeado origem, int inicio, int fim) {
+        this.bytes = origem.bytes;
+        this.limite = fim == origem.tamanho ? origem.limite : origem.posicaoDe(fim, 0, 0);
+        this.nome = origem.nome;
+        this.ascii = origem.ascii;
+        this.tamanho = fim;
+        this.referencias = origem.referencias;
+        this.iniciosLinha = origem.iniciosLinha;
+        this.linhas = origem.linhas;
+        this.indice = inicio;
+        this.posicao = inicio == origem.tamanho ? origem.limite : origem.posicaoDe(inicio, 0, 0);
+    }
+
+    /**
+     * Mapeia o arquivo inteiro; o conteúdo não é copiado para o heap.
+     */
+    public static CharStreamMapeado abrir(String arquivo) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(arquivo, "r");
+             FileChannel canal = raf.getChannel()) {
+            return new CharStreamMapeado(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()), arquivo);
+        }
+    }
+
+    // --- UTF-8 ---
+
+    // Tamanho da sequência UTF-8 válida que começa em 'pos' ou, se ela for inválida, -k: os k bytes viram
+    // um só U+FFFD. Os k seguem o decodificador UTF-8 do JDK usado por CharStreams (inclusive para
+    // surrogates e para a sequência incompleta no fim do arquivo), para que os índices sejam os mesmos.
+    // Só bytes de continuação são agrupados ao primeiro; ver anterior()
+    private int tamanhoSequencia(int pos) {
+        int b0 = bytes.get(pos) & 0xFF;
+        int restante = limite - pos;
+        if (b0 < 0x80) return 1;
+        if (b0 >= 0xC2 && b0 <= 0xDF) {
+            return restante > 1 && continuacao(pos + 1) ? 2 : -1;
+        }
+        if (b0 >= 0xE0 && b0 <= 0xEF) {
+            int b1 = restante > 1 ? bytes.get(pos + 1) & 0xFF : 0x80;
+            boolean invalido2 = (b0 == 0xE0 && (b1 & 0xE0) == 0x80) || (b1 & 0xC0) != 0x80;
+            if (restante < 3) return restante > 1 && invalido2 ? -1 : -restante;
+            if (invalido2) return -1;
+            if (!continuacao(pos + 2)) return -2;
+            return b0 == 0xED && b1 >= 0xA0 ? -3 : 3;   // surrogate
+        }
+        if (b0 >= 0xF0 && b0 <= 0xF4) {
+            int b1 = restante > 1 ? bytes.get(pos + 1) & 0xFF : 0x80;
+            boolean invalido2 = (b0 == 0xF0 && (b1 < 0x90 || b1 > 0xBF))
+                    || (b0 == 0xF4 && (b1 & 0xF0) != 0x80) || (b1 & 0xC0) != 0x80;
+            if (restante < 4) {
+                if (restante > 1 && invalido2) return -1;
+                if (restante > 2 && !continuacao(pos + 2)) return -2;
+                return -restante;
+            }
+            if (invalido2) return -1;
+            if (!continuacao(pos + 2)) return -2;
+            if (!continuacao(pos + 3)) return -3;
+            return 4;
+        }
+        return -1;
+    }
+
+    private boolean continuacao(int pos) {
+        return (bytes.get(pos) & 0xC0) == 0x80;
+    }
+
+    private int codePoint(int pos) {
+        int b0 = bytes.get(pos);
+        if (b0 >= 0) return b0;
+        int n = tamanhoSequencia(pos);
+        if (n < 0) return SUBSTITUTO;
+        int cp = b0 & (0xFF >> (n + 1));
+        for (int i = 1; i < n; i++) {
+            cp = (cp << 6) | (bytes.get(pos + i) & 0x3F);
+        }
+        return cp;
+    }
+
+    private int proximo(int pos) {
+        if (bytes.get(pos) >= 0) return pos + 1;
+        return pos + Math.abs(tamanhoSequencia(pos));
+    }
+
+    // Início do code point anterior a 'pos'. Um byte que não é de continuação sempre inicia um code point;
+    // se o dele não termina em 'pos', o byte anterior é uma continuação solta, que vale um code point sozinha
+    private int anterior(int pos) {
+        for (int k = 1; k <= 4 && pos - k >= 0; k++) {
+            if (!continuacao(pos - k)) {
+                return Math.abs(tamanhoSequencia(pos - k)) == k ? pos - k : pos - 1;
+            }
+        }
+        return pos - 1;
+    }
+
+    // Offset em bytes do code point 'alvo', andando a partir de (de, dePosicao) ou da referência mais próxima
+    private int posicaoDe(int alvo, int de, int dePosicao) {
+        if (ascii) return alvo;
+        if (alvo < de - PASSO_REFERENCIA || alvo > de + PASSO_REFERENCIA) {
+            de = Math.min(alvo, tamanho - 1) / PASSO_REFERENCIA * PASSO_REFERENCIA;
+            dePosicao = referencias[de / PASSO_REFERENCIA];
+        }
+        while (de < alvo) {
+            dePosicao = proximo(dePosicao);
+            de++;
+        }
+        while (de > alvo) {
+            dePosicao = anterior(dePosicao);
+            de--;
+        }
+        return dePosicao;
+    }
+
+    // --- CharStream ---
+
+    @Override
+    public void consume() {
+        if (indice >= tamanho) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        posicao = ascii ? posicao + 1 : proximo(posicao);
+        indice++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) return 0; // indefinido
+        int alvo = i > 0 ? indice + i - 1 : indice + i;
+        if (alvo < 0 || alvo >= tamanho) return IntStream.EOF;
+        if (i == 1) return codePoint(posicao);
+        return codePoint(posicaoDe(alvo, indice, posicao));
+    }
+
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return indice;
+    }
+
+    @Override
+    public void seek(int index) {
+        int alvo = Math.min(Math.max(index, 0), tamanho);
+        posicao = alvo == tamanho ? limite : posicaoDe(alvo, indice, posicao);
+        indice = alvo;
+    }
+
+    @Override
+    public int size() {
+        return tamanho;
+    }
+
+    @Override
+    public String getSourceName() {
+        return nome == null || nome.isEmpty() ? IntStream.UNKNOWN_SOURCE_NAME : nome;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int inicio = interval.a;
+        int fim = Math.min(interval.b, tamanho - 1);
+        if (inicio >= tamanho || fim < inicio) return "";
+        int de = posicaoDe(inicio, indice, posicao);
+        int ate = fim + 1 == tamanho ? limite : posicaoDe(fim + 1, inicio, de);
+        byte[] trecho = new byte[ate - de];
+        ByteBuffer visao = bytes.duplicate();
+        visao.position(de);
+        visao.get(trecho);
+        if (ascii) return new String(trecho, StandardCharsets.ISO_8859_1);
+        // decodifica code point a code point para tratar bytes inválidos como no resto do stream
+        StringBuilder sb = new StringBuilder(trecho.length);
+        for (int p = de; p < ate; p = proximo(p)) sb.appendCodePoint(codePoint(p));
+        return sb.toString();
+    }
+
+    // --- Trechos ---
+
+    /**
+     * Visão do trecho [inicio, fim), já posicionada em 'inicio', com os mesmos índices, linhas e colunas
+     * deste stream; o EOF da visão fica em 'fim'. Nada é copiado, e cada visão tem a sua posição: trechos
+     * diferentes podem ser lidos ao mesmo tempo (ver LexicoParaleloAntlr). 'fim' deve ser início de linha
+     * ou o fim da entrada, para que nenhum code point seja cortado.
+     */
+    public CharStreamMapeado trecho(int inicio, int fim) {
+        if (inicio < 0 || inicio > fim || fim > tamanho) {
+            throw new IndexOutOfBoundsException("trecho [" + inicio + ", " + fim + ") de " + tamanho);
+        }
+        return new CharStreamMapeado(this, inicio, fim);
+    }
+
+    // Índice do primeiro início de linha em 'indice' ou depois dele; size() se não houver
+    public int inicioLinha(int indice) {
+        int l = linha(indice);
+        if (iniciosLinha[l - 1] == indice) return indice;
+        return l < linhas ? iniciosLinha[l] : tamanho;
+    }
+
+    // --- Linha e coluna sob demanda ---
+
+    // Linha (1-based) do code point 'indice'
+    public int linha(int indice) {
+        int lo = 0;
+        int hi = linhas - 1;
+        while (lo < hi) {
+            int meio = (lo + hi + 1) >>> 1;
+            if (iniciosLinha[meio] <= indice) lo = meio;
+            else hi = meio - 1;
+        }
+        return lo + 1;
+    }
+
+    // Coluna (0-based, em code points) do code point 'indice', como Lexer.getCharPositionInLine
+    public int coluna(int indice) {
+        return indice - iniciosLinha[linha(indice) - 1];
+    }
+
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, tamanho - 1));
+    }
+}
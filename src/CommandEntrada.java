@@ -1,16 +1,15 @@
 public class CommandEntrada extends Command {
     
     private String variavel;
-    private String tipo;
+    private TipoGyh tipo;
     
-    public CommandEntrada(String variavel, String tipo) {
+    public CommandEntrada(String variavel, TipoGyh tipo) {
         this.variavel = variavel;
         this.tipo = tipo;
     }
     
     @Override
     public String generateCode() {
-        String formato = tipo.equals("INTEGER") ? "%d" : "%lf";
-        return "scanf(\"" + formato + "\", &" + variavel + ");";
+        return "scanf(\"" + tipo.getFormato() + "\", &" + variavel + ");";
     }
 }
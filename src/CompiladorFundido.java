@@ -0,0 +1,88 @@
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+/**
+ * Análise semântica e geração de código num só percurso da árvore: cada nó é entregue ao
+ * AnalisadorSemantico e, em seguida, ao GeradorCodigo, na ordem em que um ParseTreeWalker os visitaria
+ * em dois percursos separados.
+ *
+ * O GeradorCodigo lê os tipos que o AnalisadorSemantico acabou de anotar no mesmo nó (ver TabelaTipos).
+ * No primeiro erro semântico o gerador deixa de receber os nós e o código gerado até ali não vale mais:
+ * como nos dois percursos, só se usa o GeradorCodigo quando não há erros. Uma exceção do gerador também
+ * o interrompe e fica em getFalhaGeracao(), para ser tratada na fase de geração.
+ *
+ * Uso: walker.walk(new CompiladorFundido(analisador, gerador), arvore). Com -Dgyh.duasPassadas=true o
+ * Main e o TestadorGyhLang voltam a percorrer a árvore duas vezes.
+ */
+public class CompiladorFundido implements ParseTreeListener {
+
+    private final AnalisadorSemantico analisador;
+    private final GeradorCodigo gerador;
+    private RuntimeException falhaGeracao;
+
+    // 'gerador' deve usar a tabela de símbolos e os tipos de 'analisador'
+    public CompiladorFundido(AnalisadorSemantico analisador, GeradorCodigo gerador) {
+        this.analisador = analisador;
+        this.gerador = gerador;
+    }
+
+    // Se a árvore deve ser percorrida duas vezes (-Dgyh.duasPassadas=true)
+    public static boolean duasPassadas() {
+        return Boolean.getBoolean("gyh.duasPassadas");
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+        analisador.enterEveryRule(ctx);
+        ctx.enterRule(analisador);
+        if (gerando()) {
+            try {
+                gerador.enterEveryRule(ctx);
+                ctx.enterRule(gerador);
+            } catch (RuntimeException e) {
+                falhaGeracao = e;
+            }
+        }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        ctx.exitRule(analisador);
+        analisador.exitEveryRule(ctx);
+        if (gerando()) {
+            try {
+                ctx.exitRule(gerador);
+                gerador.exitEveryRule(ctx);
+            } catch (RuntimeException e) {
+                falhaGeracao = e;
+            }
+        }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+        analisador.visitTerminal(node);
+        if (gerando()) {
+            gerador.visitTerminal(node);
+        }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+        analisador.visitErrorNode(node);
+        if (gerando()) {
+            gerador.visitErrorNode(node);
+        }
+    }
+
+    private boolean gerando() {
+        return falhaGeracao == null && !analisador.temErros();
+    }
+
+    // Exceção lançada pelo GeradorCodigo durante o percurso, ou null
+    public RuntimeException getFalhaGeracao() {
+        return falhaGeracao;
+    }
+}
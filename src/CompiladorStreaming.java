@@ -0,0 +1,344 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.LexerNoViableAltException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+import org.antlr.v4.runtime.tree.IterativeParseTreeWalker;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+/**
+ * Compilação em fluxo: léxico, sintático, semântico e geração de código comando a comando, sem montar
+ * a árvore do programa inteiro.
+ *
+ * Os tokens vêm de um UnbufferedTokenStream, que só guarda a janela que o parser ainda pode olhar. Depois
+ * de [DECLARAR] a tabela de símbolos fica pronta e o cabeçalho do C é escrito; cada comando de
+ * [PROGRAMA] é então analisado, verificado pelo AnalisadorSemantico e convertido pelo GeradorCodigo num
+ * só percurso (CompiladorFundido), escrito na saída e retirado da árvore. A memória usada não depende do
+ * tamanho do programa, só da quantidade de variáveis e do maior comando. Os índices dos fluxos do ANTLR
+ * são int, então cada entrada é limitada a 2^31 - 1 caracteres.
+ *
+ * O parse é o do GyhLangParser gerado (parser.programa()), com as mesmas previsões, mensagens e
+ * recuperação de erros do parser normal: um listener de parse (Parser.addParseListener), chamado à
+ * medida que as regras terminam, trata as declarações e cada comando de [PROGRAMA]. Um erro (léxico,
+ * sintático ou semântico) interrompe a escrita, mas a análise continua para reportar os demais: a saída
+ * só vale quando compilar() devolve true. Como no Main, que só passa à fase seguinte se a anterior não
+ * teve erros, cada fase reporta num Diagnosticos próprio, com o seu limite de -Dgyh.maxErros, e
+ * getDiagnosticos() devolve o da primeira fase com erros: com um erro léxico os erros sintáticos que ele
+ * provocou são descartados, e depois de um erro sintático a análise semântica para.
+ *
+ * Uso: java CompiladorStreaming entrada.gyh [saida.c]
+ */
+public class CompiladorStreaming {
+
+    // O UnbufferedCharStream descarta o texto já lido: os tokens levam uma cópia. O EOF leva "<EOF>", o
+    // texto que ele tem no parser normal (a cópia seria '', e sem texto o CommonToken pediria o tamanho
+    // do fluxo, que o UnbufferedCharStream não sabe)
+    private static final CommonTokenFactory COPIA_TEXTO = new CommonTokenFactory(true) {
+        @Override
+        public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                  int start, int stop, int line, int charPositionInLine) {
+            return super.create(source, type, type == Token.EOF ? "<EOF>" : text, channel, start, stop, line,
+                    charPositionInLine);
+        }
+    };
+
+    private Diagnosticos diagnosticos;
+    private Diagnosticos lexicos;
+    private Diagnosticos sintaticos;
+    private Diagnosticos semanticos;
+    private GyhLangErrorListener errorLexer;
+    private GyhLangErrorListener errorParser;
+    private final ParseTreeWalker walker = new IterativeParseTreeWalker();
+    private AnalisadorSemantico analisador;
+    private GeradorCodigo gerador;
+    private CompiladorFundido fundido;
+    private GyhLangParser parser;
+    private Writer saida;
+    private boolean emitindo;
+    private boolean interrompido;
+    private boolean semanticaEncerrada;
+    private long comandos;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Uso: java CompiladorStreaming entrada.gyh [saida.c]");
+            return;
+        }
+        File destino = new File(args.length > 1 ? args[1] : "programa_gerado.c");
+        // um arquivo comum é escrito ao lado e renomeado no fim, para não sobrar código C parcial;
+        // /dev/null ou um pipe recebem a saída direto
+        boolean direto = destino.exists() && !destino.isFile();
+        File temporario = direto ? destino : new File(destino.getPath() + ".tmp");
+
+        SnapshotDfa.carregarPadrao();
+        CompiladorStreaming compilador = new CompiladorStreaming();
+        long inicio = System.nanoTime();
+        boolean ok;
+        try (InputStream entrada = new FileInputStream(args[0]);
+             Writer saida = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporario),
+                     StandardCharsets.UTF_8))) {
+            CharStream input = new UnbufferedCharStream(entrada, 4096, StandardCharsets.UTF_8);
+            ok = compilador.compilar(input, saida);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        Diagnosticos diagnosticos = compilador.getDiagnosticos();
+        diagnosticos.imprimir(System.err, "", CodigoErro.Fase.LEXICA, CodigoErro.Fase.SINTATICA);
+        // como no Main, os erros semânticos só valem para um programa sem erros sintáticos
+        if (diagnosticos.temErros(CodigoErro.Fase.SEMANTICA)) {
+            System.out.println("ERROS SEMÂNTICOS ENCONTRADOS:");
+            diagnosticos.imprimir(System.out, "  • ", CodigoErro.Fase.SEMANTICA);
+        }
+        if (diagnosticos.isLimiteAtingido()) {
+            System.out.println("(análise interrompida no limite de " + diagnosticos.getLimite()
+                    + " erros, -Dgyh.maxErros)");
+        }
+        if (!ok) {
+            if (!direto) temporario.delete();
+            System.out.println("PROGRAMA COM ERROS! Nenhum código gerado.");
+            return;
+        }
+        if (!direto) {
+            if (destino.exists()) destino.delete();
+            if (!temporario.renameTo(destino)) {
+                throw new IOException("não foi possível renomear " + temporario + " para " + destino);
+            }
+        }
+        System.out.printf("%d comandos compilados em %.2f s. Código C salvo em: %s%n",
+                compilador.getComandos(), segundos, destino.getPath());
+    }
+
+    /**
+     * Compila 'entrada' escrevendo o código C em 'saida' à medida que os comandos são analisados.
+     * Devolve false se houve qualquer erro; nesse caso o que foi escrito deve ser descartado.
+     */
+    public boolean compilar(CharStream entrada, Writer saida) throws IOException {
+        lexicos = new Diagnosticos();
+        sintaticos = new Diagnosticos();
+        semanticos = new Diagnosticos();
+        diagnosticos = lexicos;
+        errorLexer = new GyhLangErrorListener(lexicos);
+        errorParser = new GyhLangErrorListener(sintaticos);
+
+        GyhLangLexer lexer = new LexerFluxo(entrada);
+        lexer.setTokenFactory(entrada instanceof CharStreamMapeado ? FabricaTokens.PADRAO : COPIA_TEXTO);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorLexer);
+
+        analisador = new AnalisadorSemantico(semanticos);
+        gerador = new GeradorCodigo(analisador.getTabelaSimbolos(), analisador.getTipos());
+        fundido = new CompiladorFundido(analisador, gerador);
+        this.saida = saida;
+        emitindo = false;
+        interrompido = false;
+        semanticaEncerrada = false;
+        comandos = 0;
+        parser = null;
+
+        try {
+            // LL direto: o fluxo não guarda os tokens para uma segunda fase como a do ParsingDuasFases.
+            // O UnbufferedTokenStream já lê o primeiro token, que pode ter um erro léxico
+            parser = new GyhLangParser(new TokensFluxo(lexer));
+            parser.removeErrorListeners();
+            parser.addErrorListener(errorParser);
+            parser.addParseListener(new Acompanhamento());
+            try {
+                parser.programa();
+            } catch (Diagnosticos.LimiteAtingido e) {
+                if (lexicos.isLimiteAtingido()) {
+                    throw e;
+                }
+                // limite de erros sintáticos: o parse para, mas o lexer segue, porque um erro léxico no
+                // resto da entrada descarta os sintáticos
+            }
+            // programa não termina em EOF: o Main lê todos os tokens antes do parse (tokens.fill()), e
+            // o resto da entrada passa pelo lexer aqui também, para reportar os mesmos erros léxicos
+            TokenStream tokens = parser.getInputStream();
+            while (tokens.LA(1) != Token.EOF) {
+                tokens.consume();
+            }
+        } catch (Diagnosticos.LimiteAtingido e) {
+            // parou no limite de erros léxicos: o que foi escrito não vale
+            return false;
+        } catch (UncheckedIOException e) {
+            // falha ao escrever a saída, vinda de dentro do parser (ver Acompanhamento)
+            throw e.getCause();
+        }
+
+        if (!errorLexer.temErros()) {
+            diagnosticos = sintaticos.temErros() ? sintaticos : semanticos;
+        }
+        boolean ok = semErrosSintaticos() && !analisador.temErros();
+        if (ok && emitindo) {
+            StringBuilder rodape = new StringBuilder();
+            gerador.gerarRodape(rodape);
+            saida.append(rodape);
+        }
+        return ok;
+    }
+
+    /**
+     * Chamado pelo GyhLangParser à medida que as regras terminam. Ao fim de listaDeclaracoes a tabela de
+     * símbolos é montada e o cabeçalho do C escrito; ao fim de cada comando de [PROGRAMA] (filho de
+     * listaComandos de programa) o comando é processado e retirado da árvore. Os comandos aninhados em
+     * SE, ENQTO e INICIO...FINAL seguem com o comando de fora.
+     *
+     * Uma exceção lançada aqui atravessa o parser, cujos finally repetem o evento de saída da regra
+     * interrompida: depois dela (ou do limite de erros) os eventos são ignorados.
+     */
+    private class Acompanhamento extends GyhLangBaseListener {
+
+        @Override
+        public void exitListaDeclaracoes(GyhLangParser.ListaDeclaracoesContext declaracoes) {
+            if (interrompido || !semErrosSintaticos()) {
+                return;
+            }
+            try {
+                walker.walk(analisador, declaracoes);
+                if (!analisador.temErros()) {
+                    StringBuilder cabecalho = new StringBuilder();
+                    gerador.gerarCabecalho(cabecalho);
+                    saida.append(cabecalho);
+                    emitindo = true;
+                }
+            } catch (Diagnosticos.LimiteAtingido e) {
+                encerrarSemantica();
+            } catch (IOException e) {
+                interrompido = true;
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                interrompido = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void exitComando(GyhLangParser.ComandoContext comando) {
+            if (interrompido
+                    || !(comando.getParent() instanceof GyhLangParser.ListaComandosContext)
+                    || !(comando.getParent().getParent() instanceof GyhLangParser.ProgramaContext)) {
+                return;
+            }
+            try {
+                processar(comando);
+            } catch (Diagnosticos.LimiteAtingido e) {
+                encerrarSemantica();
+            } catch (IOException e) {
+                interrompido = true;
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                interrompido = true;
+                throw e;
+            }
+            comando.getParent().removeLastChild();
+        }
+    }
+
+    private void processar(GyhLangParser.ComandoContext comando) throws IOException {
+        comandos++;
+        // com erro sintático a árvore pode estar incompleta: só o parser continua
+        if (!semErrosSintaticos() || semanticaEncerrada) {
+            emitindo = false;
+            return;
+        }
+        // análise e geração no mesmo percurso; o gerador para no primeiro erro semântico
+        walker.walk(fundido, comando);
+        if (analisador.temErros()) {
+            emitindo = false;
+        }
+        if (fundido.getFalhaGeracao() != null) {
+            throw fundido.getFalhaGeracao();
+        }
+        if (emitindo) {
+            gerador.descarregar(saida);
+        }
+        // os tipos anotados só valem para este comando
+        analisador.getTipos().limpar();
+    }
+
+    // limite de erros semânticos: nada mais é analisado nem escrito, mas o parse segue, porque um erro
+    // léxico ou sintático no resto da entrada descarta os semânticos
+    private void encerrarSemantica() {
+        semanticaEncerrada = true;
+        emitindo = false;
+    }
+
+    private boolean semErrosSintaticos() {
+        return !errorLexer.temErros() && parser.getNumberOfSyntaxErrors() == 0;
+    }
+
+    /**
+     * GyhLangLexer que não passa o EOF para o texto do erro de um token interrompido no fim da entrada:
+     * UnbufferedCharStream.getText o inclui (e falha), enquanto o CharStream do Main o deixa de fora.
+     */
+    private static class LexerFluxo extends GyhLangLexer {
+
+        LexerFluxo(CharStream entrada) {
+            super(entrada);
+        }
+
+        @Override
+        public void notifyListeners(LexerNoViableAltException e) {
+            int fim = _input.LA(1) == IntStream.EOF ? _input.index() - 1 : _input.index();
+            String texto = _input.getText(Interval.of(_tokenStartCharIndex, fim));
+            String msg = "token recognition error at: '" + getErrorDisplay(texto) + "'";
+            getErrorListenerDispatch().syntaxError(this, null, _tokenStartLine, _tokenStartCharPositionInLine,
+                    msg, e);
+        }
+    }
+
+    /**
+     * UnbufferedTokenStream cujo getText(Interval) deixa o EOF de fora, como o BufferedTokenStream do
+     * Main: o texto entra nas mensagens de "no viable alternative".
+     */
+    private static class TokensFluxo extends UnbufferedTokenStream<Token> {
+
+        TokensFluxo(TokenSource origem) {
+            super(origem);
+        }
+
+        @Override
+        public String getText(Interval intervalo) {
+            if (intervalo.b >= intervalo.a && get(intervalo.b).getType() == Token.EOF) {
+                intervalo = Interval.of(intervalo.a, intervalo.b - 1);
+            }
+            return super.getText(intervalo);
+        }
+    }
+
+    public AnalisadorSemantico getAnalisador() {
+        return analisador;
+    }
+
+    // Erros do último compilar(): os da primeira fase (léxica, sintática, semântica) que teve erros
+    public Diagnosticos getDiagnosticos() {
+        return diagnosticos;
+    }
+
+    // Comandos de [PROGRAMA] (no nível mais externo) analisados no último compilar()
+    public long getComandos() {
+        return comandos;
+    }
+
+    public int getErrosSintaticos() {
+        return parser == null ? 0 : parser.getNumberOfSyntaxErrors();
+    }
+}
@@ -0,0 +1,98 @@
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.dfa.DFA;
+
+/**
+ * GyhLangLexer, CommonTokenStream e GyhLangParser reaproveitados entre arquivos, um conjunto por thread.
+ *
+ * Em vez de criar lexer, fluxo e parser a cada arquivo, o contexto da thread é religado à nova entrada
+ * com setInputStream/setTokenSource/setTokenStream. Os DFAs de decisão do lexer e do parser são estáticos
+ * nas classes geradas, então o que já foi aprendido vale para todos os arquivos seguintes; para a memória
+ * não crescer sem limite em execuções longas, os DFAs são descartados quando passam de um número de
+ * estados (ver setLimiteEstadosDfa). O lexer usa a FabricaTokens, que só muda os tokens de entradas
+ * CharStreamMapeado.
+ */
+public class ContextoCompilacao {
+
+    // total de estados (lexer + parser) acima do qual os DFAs são descartados
+    private static volatile int limiteEstadosDfa = Integer.getInteger("gyh.limiteDfa", 200000);
+
+    private static final ThreadLocal<ContextoCompilacao> POR_THREAD = new ThreadLocal<ContextoCompilacao>() {
+        @Override
+        protected ContextoCompilacao initialValue() {
+            return new ContextoCompilacao();
+        }
+    };
+
+    private final GyhLangLexer lexer;
+    private final CommonTokenStream tokens;
+    private final GyhLangParser parser;
+    private int arquivos;
+
+    private ContextoCompilacao() {
+        lexer = new GyhLangLexer(null);
+        lexer.setTokenFactory(FabricaTokens.PADRAO);
+        tokens = new CommonTokenStream(lexer);
+        parser = new GyhLangParser(tokens);
+    }
+
+    // Contexto da thread atual, criado no primeiro uso
+    public static ContextoCompilacao atual() {
+        return POR_THREAD.get();
+    }
+
+    public static void setLimiteEstadosDfa(int limite) {
+        limiteEstadosDfa = limite;
+    }
+
+    /**
+     * Tokeniza 'input' por completo com o lexer da thread; os erros léxicos vão para 'listener'.
+     * O fluxo devolvido é o mesmo a cada chamada, então só vale até a próxima.
+     */
+    public CommonTokenStream tokenizar(CharStream input, ANTLRErrorListener listener) {
+        limitarDfa();
+        arquivos++;
+        lexer.setInputStream(input);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(listener);
+        tokens.setTokenSource(lexer);
+        tokens.fill();
+        return tokens;
+    }
+
+    /**
+     * Parser da thread ligado ao fluxo do último tokenizar(), no primeiro token. Os listeners, a
+     * estratégia de erro e o modo de predição ficam a cargo de quem analisa (ver ParsingDuasFases).
+     */
+    public GyhLangParser parser() {
+        parser.setTokenStream(tokens);
+        tokens.seek(0);   // setTokenStream faz o reset antes de trocar o fluxo
+        return parser;
+    }
+
+    // Arquivos tokenizados por este contexto
+    public int getArquivos() {
+        return arquivos;
+    }
+
+    // Estados nos DFAs compartilhados do lexer e do parser
+    public int getEstadosDfa() {
+        return contarEstados(lexer.getInterpreter().decisionToDFA)
+                + contarEstados(parser.getInterpreter().decisionToDFA);
+    }
+
+    // Descarta os DFAs aprendidos se passaram do limite; eles são reconstruídos sob demanda
+    private void limitarDfa() {
+        if (getEstadosDfa() > limiteEstadosDfa) {
+            lexer.getInterpreter().clearDFA();
+            parser.getInterpreter().clearDFA();
+        }
+    }
+
+    private static int contarEstados(DFA[] dfas) {
+        int total = 0;
+        for (DFA dfa : dfas) total += dfa.states.size();
+        return total;
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diagnósticos de uma compilação, de todas as fases, na ordem em que foram reportados.
+ *
+ * Só os registros são guardados (ver Diagnostico): as mensagens são formatadas quando alguém as pede e
+ * imprimir() as escreve em blocos grandes, em vez de uma escrita sincronizada no console por erro.
+ *
+ * Com -Dgyh.maxErros=N (ou o construtor com limite) o N-ésimo diagnóstico reportado lança
+ * LimiteAtingido, que atravessa a fase em andamento (lexer, parser ou percurso da árvore) e a
+ * interrompe; Main, TestadorGyhLang e CompiladorStreaming tratam a exceção como o fim da fase, com erros.
+ * Sem a propriedade não há limite.
+ *
+ * Os métodos são sincronizados, então uma instância pode ser compartilhada entre threads. Para manter a
+ * ordem do fonte, a análise semântica paralela dá a cada pedaço uma instância própria, com o limite que
+ * ainda resta, e as junta em ordem com incorporar().
+ */
+public class Diagnosticos {
+
+	public static final int SEM_LIMITE = Integer.MAX_VALUE;
+
+	private static final int BLOCO_IMPRESSAO = 1 << 16;
+
+	private final int limite;
+	private final List<Diagnostico> diagnosticos = new ArrayList<>();
+	private final int[] porFase = new int[CodigoErro.Fase.values().length];
+
+	// Com o limite de -Dgyh.maxErros
+	public Diagnosticos() {
+		this(limitePadrao());
+	}
+
+	public Diagnosticos(int limite) {
+		if (limite <= 0) {
+			throw new IllegalArgumentException("O limite de erros deve ser positivo: " + limite);
+		}
+		this.limite = limite;
+	}
+
+	// -Dgyh.maxErros=N; sem a propriedade (ou com N <= 0), SEM_LIMITE
+	public static int limitePadrao() {
+		int limite = Integer.getInteger("gyh.maxErros", 0);
+		return limite > 0 ? limite : SEM_LIMITE;
+	}
+
+	/**
+	 * Registra 'diagnostico'. O que completa o limite é registrado e lança LimiteAtingido; os reportados
+	 * depois disso são descartados e também lançam.
+	 */
+	public synchronized void reportar(Diagnostico diagnostico) {
+		if (diagnosticos.size() < limite) {
+			diagnosticos.add(diagnostico);
+			porFase[diagnostico.getFase().ordinal()]++;
+		}
+		if (diagnosticos.size() >= limite) {
+			throw new LimiteAtingido(limite);
+		}
+	}
+
+	// Reporta, em ordem, os diagnósticos de 'outros' (ex.: os de um pedaço da análise paralela)
+	public void incorporar(Diagnosticos outros) {
+		for (Diagnostico diagnostico : outros.getDiagnosticos()) {
+			reportar(diagnostico);
+		}
+	}
+
+	public int getLimite() {
+		return limite;
+	}
+
+	// Quantos diagnósticos ainda podem ser reportados antes do limite
+	public synchronized int restantes() {
+		return limite - diagnosticos.size();
+	}
+
+	public synchronized boolean isLimiteAtingido() {
+		return diagnosticos.size() >= limite;
+	}
+
+	public synchronized int quantidade() {
+		return diagnosticos.size();
+	}
+
+	public synchronized boolean temErros() {
+		return !diagnosticos.isEmpty();
+	}
+
+	public synchronized boolean temErros(CodigoErro.Fase fase) {
+		return porFase[fase.ordinal()] > 0;
+	}
+
+	// Cópia dos diagnósticos, na ordem em que foram reportados
+	public synchronized List<Diagnostico> getDiagnosticos() {
+		return new ArrayList<>(diagnosticos);
+	}
+
+	// Mensagens dos diagnósticos de 'fase', formatadas na chamada
+	public synchronized List<String> getMensagens(CodigoErro.Fase fase) {
+		List<String> mensagens = new ArrayList<>(porFase[fase.ordinal()]);
+		for (Diagnostico diagnostico : diagnosticos) {
+			if (diagnostico.getFase() == fase) {
+				mensagens.add(diagnostico.getMensagem());
+			}
+		}
+		return mensagens;
+	}
+
+	/**
+	 * Escreve em 'saida' as mensagens das fases indicadas (sem fases, as de todas), uma por linha e
+	 * precedidas de 'prefixo'. As mensagens são montadas num buffer, escrito em blocos de BLOCO_IMPRESSAO
+	 * caracteres.
+	 */
+	public synchronized void imprimir(PrintStream saida, String prefixo, CodigoErro.Fase... fases) {
+		String quebra = System.lineSeparator();
+		StringBuilder sb = new StringBuilder();
+		for (Diagnostico diagnostico : diagnosticos) {
+			if (fases.length == 0 || contem(fases, diagnostico.getFase())) {
+				sb.append(prefixo);
+				diagnostico.acrescentarMensagem(sb);
+				sb.append(quebra);
+				if (sb.length() >= BLOCO_IMPRESSAO) {
+					saida.print(sb);
+					sb.setLength(0);
+				}
+			}
+		}
+		if (sb.length() > 0) {
+			saida.print(sb);
+		}
+		saida.flush();
+	}
+
+	private static boolean contem(CodigoErro.Fase[] fases, CodigoErro.Fase fase) {
+		for (CodigoErro.Fase f : fases) {
+			if (f == fase) return true;
+		}
+		return false;
+	}
+
+	// Lançada ao chegar ao limite de diagnósticos, para interromper a fase em andamento
+	public static class LimiteAtingido extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		LimiteAtingido(int limite) {
+			// sem pilha: é só o sinal de parada, lançado no meio da análise
+			super("Limite de " + limite + " erros atingido", null, false, false);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * TokenFactory que cria TokenCompacto para os tokens lidos de um CharStreamMapeado.
+ *
+ * Tokens com texto próprio (os "<missing X>" da recuperação de erro do parser), sem posição na entrada
+ * ou lidos de outro CharStream continuam sendo CommonToken, como na CommonTokenFactory.DEFAULT.
+ */
+public class FabricaTokens implements TokenFactory<Token> {
+
+    public static final FabricaTokens PADRAO = new FabricaTokens();
+
+    @Override
+    public Token create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                        int start, int stop, int line, int charPositionInLine) {
+        if (text == null && start >= 0 && source.b instanceof CharStreamMapeado) {
+            return new TokenCompacto(source, type, channel, start, stop);
+        }
+        CommonToken t = new CommonToken(source, type, channel, start, stop);
+        t.setLine(line);
+        t.setCharPositionInLine(charPositionInLine);
+        if (text != null) t.setText(text);
+        return t;
+    }
+
+    @Override
+    public Token create(int type, String text) {
+        return new CommonToken(type, text);
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Origem de tokens consumida pela JanelaTokens: reconhece um token por vez, sem criar objetos Token.
+ * Implementada pelo AnalisadorLexico (em qualquer modo de leitura) e pelo cursor de um BufferTokens.
+ */
+public interface FonteTokens {
+
+	// Reconhece o próximo token e devolve o seu tipo; null depois que o EOF já foi devolvido
+	TipoToken proxTipo() throws Exception;
+
+	// Dados do último token devolvido por proxTipo()
+	int getInicioToken();
+
+	int getTamanhoToken();
+
+	int getLinhaToken();
+
+	int getColunaToken();
+
+	String getLexemaToken();
+
+	/**
+	 * Vetor com os getTamanhoToken() chars do lexema do último token, a partir de
+	 * getInicioBufferLexemaToken(), sem criar String. Pode ser reaproveitado no próximo proxTipo().
+	 * A JanelaTokens o usa quando o fonte é lido como fluxo.
+	 */
+	char[] getBufferLexemaToken();
+
+	int getInicioBufferLexemaToken();
+
+	/**
+	 * Leitor do fonte, se ele for lido por índice (modo mapeado ou UTF-8); nesse caso posição e lexema
+	 * podem ser obtidos depois a partir do início do token. Null se o fonte é lido como fluxo.
+	 */
+	LeitorArquivo getLeitorIndexado();
+}
@@ -1,8 +1,11 @@
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 
 public class GeradorCodigo extends GyhLangBaseListener {
     
-    private Map<String, String> tabelaSimbolos;
+    private TabelaSimbolos tabelaSimbolos;
+    private TabelaTipos tipos;
     private List<Command> programa;
     private Stack<List<Command>> pilhaComandos;
     
@@ -11,8 +14,10 @@ public class GeradorCodigo extends GyhLangBaseListener {
     private Stack<CommandRepeticao> pilhaRepeticoes;
     private Stack<Boolean> pilhaDentroENTAO; // Controla se estamos no ENTAO ou SENAO
     
-    public GeradorCodigo(Map<String, String> tabelaSimbolos) {
+    // 'tipos' são os anotados pelo AnalisadorSemantico que verificou o mesmo programa
+    public GeradorCodigo(TabelaSimbolos tabelaSimbolos, TabelaTipos tipos) {
         this.tabelaSimbolos = tabelaSimbolos;
+        this.tipos = tipos;
         this.programa = new ArrayList<>();
         this.pilhaComandos = new Stack<>();
         this.pilhaComandos.push(programa);
@@ -33,7 +38,7 @@ public class GeradorCodigo extends GyhLangBaseListener {
     @Override
     public void enterComandoEntrada(GyhLangParser.ComandoEntradaContext ctx) {
         String variavel = ctx.Var().getText();
-        String tipoVar = tabelaSimbolos.get(variavel);
+        TipoGyh tipoVar = tipos.get(ctx);
         
         CommandEntrada cmd = new CommandEntrada(variavel, tipoVar);
         pilhaComandos.peek().add(cmd);
@@ -43,11 +48,11 @@ public class GeradorCodigo extends GyhLangBaseListener {
     public void enterComandoSaida(GyhLangParser.ComandoSaidaContext ctx) {
         String conteudo;
         boolean isString = false;
-        String tipo = "INTEGER";
+        TipoGyh tipo = TipoGyh.INTEGER;
         
         if (ctx.Var() != null) {
             conteudo = ctx.Var().getText();
-            tipo = tabelaSimbolos.get(conteudo);
+            tipo = tipos.get(ctx);
         } else {
             conteudo = ctx.String().getText();
             isString = true;
@@ -148,8 +153,10 @@ public class GeradorCodigo extends GyhLangBaseListener {
     }
     
     private String processarExpressaoRelacional(GyhLangParser.ExpressaoRelacionalContext ctx) {
-        String expressao = ctx.getText();
-        
+        return traduzirCondicao(ctx.getText());
+    }
+    
+    private String traduzirCondicao(String expressao) {
         // Substitui operadores booleanos para C
         expressao = expressao.replaceAll("\\bE\\b", "&&");
         expressao = expressao.replaceAll("\\bOU\\b", "||");
@@ -157,41 +164,125 @@ public class GeradorCodigo extends GyhLangBaseListener {
         return expressao;
     }
     
+    /**
+     * Gera os comandos a partir da AstGyh em vez do percurso da árvore do ANTLR; o código C é o mesmo.
+     * Os comandos aninhados em SE, ENQTO e INICIO...FIM são empilhados, junto com a lista de destino
+     * deles, em vez de gerados por recursão.
+     */
+    public void gerar(AstGyh.Programa ast) {
+        Deque<AstGyh.Comando> pendentes = new ArrayDeque<>();
+        Deque<List<Command>> destinos = new ArrayDeque<>();
+        for (AstGyh.Comando comando : ast.getComandos()) {
+            pendentes.push(comando);
+            destinos.push(programa);
+            while (!pendentes.isEmpty()) {
+                gerar(pendentes.pop(), destinos.pop(), pendentes, destinos);
+            }
+        }
+    }
+    
+    // Gera 'comando' em 'destino'; os comandos internos vão para 'pendentes', com a lista de cada um em
+    // 'destinos'
+    private void gerar(AstGyh.Comando comando, List<Command> destino, Deque<AstGyh.Comando> pendentes,
+            Deque<List<Command>> destinos) {
+        if (comando instanceof AstGyh.Atribuicao) {
+            AstGyh.Atribuicao atribuicao = (AstGyh.Atribuicao) comando;
+            destino.add(new CommandAtribuicao(atribuicao.getVariavel(), AstGyh.texto(atribuicao.getValor())));
+        } else if (comando instanceof AstGyh.Leitura) {
+            String variavel = ((AstGyh.Leitura) comando).getVariavel();
+            destino.add(new CommandEntrada(variavel, tipos.get(comando)));
+        } else if (comando instanceof AstGyh.Impressao) {
+            AstGyh.Expressao valor = ((AstGyh.Impressao) comando).getValor();
+            if (valor instanceof AstGyh.Variavel) {
+                String variavel = ((AstGyh.Variavel) valor).getNome();
+                destino.add(new CommandSaida(variavel, false, tipos.get(comando)));
+            } else {
+                destino.add(new CommandSaida(((AstGyh.Literal) valor).getTexto(), true, TipoGyh.INTEGER));
+            }
+        } else if (comando instanceof AstGyh.Se) {
+            AstGyh.Se se = (AstGyh.Se) comando;
+            List<Command> comandosEntao = new ArrayList<>();
+            List<Command> comandosSenao = se.getSenao() != null ? new ArrayList<Command>() : null;
+            // as listas são preenchidas depois, quando os comandos internos saírem da pilha
+            destino.add(new CommandCondicao(traduzirCondicao(AstGyh.texto(se.getCondicao())),
+                    comandosEntao, comandosSenao));
+            if (comandosSenao != null) {
+                pendentes.push(se.getSenao());
+                destinos.push(comandosSenao);
+            }
+            pendentes.push(se.getEntao());
+            destinos.push(comandosEntao);
+        } else if (comando instanceof AstGyh.Enquanto) {
+            AstGyh.Enquanto enquanto = (AstGyh.Enquanto) comando;
+            List<Command> comandos = new ArrayList<>();
+            destino.add(new CommandRepeticao(traduzirCondicao(AstGyh.texto(enquanto.getCondicao())), comandos));
+            pendentes.push(enquanto.getCorpo());
+            destinos.push(comandos);
+        } else {
+            // INICIO...FINAL: os comandos vão para o escopo atual, como em enterSubAlgoritmo
+            List<AstGyh.Comando> filhos = ((AstGyh.Bloco) comando).getComandos();
+            for (int i = filhos.size() - 1; i >= 0; i--) {
+                pendentes.push(filhos.get(i));
+                destinos.push(destino);
+            }
+        }
+    }
+    
     public String gerarCodigoC() {
         StringBuilder codigo = new StringBuilder();
+        gerarCabecalho(codigo);
         
+        // Comandos do programa
+        for (Command cmd : programa) {
+            gerarComando(cmd, codigo);
+        }
+        
+        gerarRodape(codigo);
+        return codigo.toString();
+    }
+    
+    /**
+     * Escreve em 'saida' o código dos comandos gerados desde a última chamada e os descarta.
+     * Usado pelo CompiladorStreaming, que escreve cabeçalho e rodapé separadamente.
+     */
+    public void descarregar(Writer saida) throws IOException {
+        StringBuilder codigo = new StringBuilder();
+        for (Command cmd : programa) {
+            gerarComando(cmd, codigo);
+        }
+        programa.clear();
+        saida.append(codigo);
+    }
+    
+    void gerarCabecalho(StringBuilder codigo) {
         codigo.append("#include <stdio.h>\n");
         codigo.append("#include <stdlib.h>\n\n");
         codigo.append("int main() {\n");
         
-        // Declaração de variáveis
-        for (Map.Entry<String, String> entry : tabelaSimbolos.entrySet()) {
-            String nomeVar = entry.getKey();
-            String tipo = entry.getValue();
-            
-            String tipoC = tipo.equals("INTEGER") ? "int" : "double";
-            codigo.append("    ").append(tipoC).append(" ").append(nomeVar).append(";\n");
+        // Declaração de variáveis, na ordem em que foram declaradas
+        for (int id = 0; id < tabelaSimbolos.tamanho(); id++) {
+            String tipoC = tabelaSimbolos.getTipo(id).getTipoC();
+            codigo.append("    ").append(tipoC).append(" ").append(tabelaSimbolos.getNome(id)).append(";\n");
         }
         
         if (!tabelaSimbolos.isEmpty()) {
             codigo.append("\n");
         }
-        
-        // Comandos do programa
-        for (Command cmd : programa) {
-            String codigoCmd = cmd.generateCode();
-            String[] linhas = codigoCmd.split("\n");
-            for (String linha : linhas) {
-                if (!linha.trim().isEmpty()) {
-                    codigo.append("    ").append(linha).append("\n");
-                }
+    }
+    
+    private void gerarComando(Command cmd, StringBuilder codigo) {
+        String codigoCmd = cmd.generateCode();
+        String[] linhas = codigoCmd.split("\n");
+        for (String linha : linhas) {
+            if (!linha.trim().isEmpty()) {
+                codigo.append("    ").append(linha).append("\n");
             }
         }
-        
+    }
+    
+    void gerarRodape(StringBuilder codigo) {
         codigo.append("\n    return 0;\n");
         codigo.append("}\n");
-        
-        return codigo.toString();
     }
     
     public List<Command> getPrograma() {
@@ -1,9 +1,23 @@
 import org.antlr.v4.runtime.*;
 
+/**
+ * Reporta os erros do GyhLangLexer e do GyhLangParser como Diagnosticos, em vez de imprimi-los na hora:
+ * quem analisa imprime os da fase (Diagnosticos.imprimir) quando ela termina.
+ */
 public class GyhLangErrorListener extends BaseErrorListener {
-    
+
+    private final Diagnosticos diagnosticos;
     private boolean temErros = false;
-    
+
+    public GyhLangErrorListener() {
+        this(new Diagnosticos());
+    }
+
+    // Reporta em 'diagnosticos', que pode ser compartilhado com as outras fases
+    public GyhLangErrorListener(Diagnosticos diagnosticos) {
+        this.diagnosticos = diagnosticos;
+    }
+
     @Override
     public void syntaxError(Recognizer<?, ?> recognizer,
                            Object offendingSymbol,
@@ -11,28 +25,40 @@ public class GyhLangErrorListener extends BaseErrorListener {
                            int charPositionInLine,
                            String msg,
                            RecognitionException e) {
-        
+
         temErros = true;
-        
+
+        // Erro do lexer: trecho que não forma nenhum token
+        if (recognizer instanceof Lexer) {
+            int posicao = ((Lexer) recognizer)._tokenStartCharIndex;
+            diagnosticos.reportar(new Diagnostico(CodigoErro.TOKEN_NAO_RECONHECIDO, posicao, line,
+                    charPositionInLine, msg));
+            return;
+        }
+
         // Verifica se é um token inválido (identificador que começa com número)
+        int posicao = -1;
         if (offendingSymbol instanceof Token) {
             Token token = (Token) offendingSymbol;
-            String tokenText = token.getText();
-            
+            posicao = token.getStartIndex();
+
             // Detecta INVALID_ID
             if (token.getType() == GyhLangLexer.INVALID_ID) {
-                System.err.println("ERRO LÉXICO na linha " + line + ":" + charPositionInLine + 
-                                 " - Identificador inválido '" + tokenText + 
-                                 "' (identificadores não podem começar com número)");
+                diagnosticos.reportar(new Diagnostico(CodigoErro.IDENTIFICADOR_INVALIDO, posicao, line,
+                        charPositionInLine, token.getText()));
                 return;
             }
         }
-        
+
         // Erro sintático padrão
-        System.err.println("ERRO SINTÁTICO na linha " + line + ":" + charPositionInLine + " - " + msg);
+        diagnosticos.reportar(new Diagnostico(CodigoErro.SINTAXE_ANTLR, posicao, line, charPositionInLine, msg));
     }
-    
+
     public boolean temErros() {
         return temErros;
     }
+
+    public Diagnosticos getDiagnosticos() {
+        return diagnosticos;
+    }
 }
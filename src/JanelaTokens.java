@@ -0,0 +1,124 @@
+/**
+ * Janela de lookahead de tamanho fixo entre uma FonteTokens e o analisador sintático.
+ *
+ * Os próximos tokens ficam em um buffer circular de vetores paralelos (tipo, início, tamanho), então
+ * olhar(k) não exige retrocesso nem nova análise léxica, e o uso normal não aloca nada. Os tokens só são
+ * pedidos à fonte quando alguém olha para eles, de modo que um erro léxico mais à frente não aparece
+ * antes do tempo. Linha, coluna e lexema saem do fonte pelo offset; se a fonte é lida como fluxo, eles
+ * são copiados para a janela junto com o token, o lexema em um vetor de chars reaproveitado por posição
+ * do buffer: a String só é criada em getLexema().
+ */
+public class JanelaTokens {
+
+	private final FonteTokens fonte;
+	private final LeitorArquivo leitor;   // null se a fonte é lida como fluxo
+	private final int mascara;
+
+	private final TipoToken[] tipos;
+	private final int[] inicios;
+	private final int[] tamanhos;
+	// só usados com fontes lidas como fluxo
+	private final int[] linhas;
+	private final int[] colunas;
+	private final char[][] lexemas;
+
+	private int cabeca;        // posição do token atual no buffer circular
+	private int disponiveis;   // tokens já lidos a partir da cabeça
+	private int consumidos;    // tokens descartados por avancar()
+
+	/**
+	 * @param k maior lookahead que será pedido em olhar(k)
+	 */
+	public JanelaTokens(FonteTokens fonte, int k) {
+		if (k < 1) throw new IllegalArgumentException("Lookahead inválido: " + k);
+		this.fonte = fonte;
+		this.leitor = fonte.getLeitorIndexado();
+		int capacidade = Integer.highestOneBit(k);
+		if (capacidade < k) capacidade <<= 1;
+		mascara = capacidade - 1;
+		tipos = new TipoToken[capacidade];
+		inicios = new int[capacidade];
+		tamanhos = new int[capacidade];
+		linhas = leitor == null ? new int[capacidade] : null;
+		colunas = leitor == null ? new int[capacidade] : null;
+		lexemas = leitor == null ? new char[capacidade][16] : null;
+	}
+
+	// Tipo do k-ésimo token à frente (1 = token atual); depois do fim do fonte é sempre EOF
+	public TipoToken olhar(int k) throws Exception {
+		return tipos[slot(k)];
+	}
+
+	public int getInicio(int k) throws Exception {
+		return inicios[slot(k)];
+	}
+
+	public int getLinha(int k) throws Exception {
+		int s = slot(k);
+		return leitor != null ? leitor.getTabelaLinhas().linha(inicios[s]) : linhas[s];
+	}
+
+	public int getColuna(int k) throws Exception {
+		int s = slot(k);
+		return leitor != null ? leitor.getTabelaLinhas().coluna(inicios[s]) : colunas[s];
+	}
+
+	// Índice do k-ésimo token à frente na sequência da fonte (0 = primeiro token lido)
+	public int getIndice(int k) throws Exception {
+		slot(k);
+		return consumidos + k - 1;
+	}
+
+	public String getLexema(int k) throws Exception {
+		int s = slot(k);
+		if (tamanhos[s] == 0) return "";
+		return leitor != null ? leitor.lexema(inicios[s], tamanhos[s]) : new String(lexemas[s], 0, tamanhos[s]);
+	}
+
+	// Descarta o token atual. No EOF fica parado nele.
+	public void avancar() throws Exception {
+		int s = slot(1);
+		if (tipos[s] == TipoToken.EOF) return;
+		cabeca = (cabeca + 1) & mascara;
+		disponiveis--;
+		consumidos++;
+	}
+
+	// Posição no buffer do k-ésimo token, lendo da fonte o que faltar
+	private int slot(int k) throws Exception {
+		if (k < 1 || k > mascara + 1) {
+			throw new IllegalArgumentException("Lookahead fora da janela: " + k);
+		}
+		while (disponiveis < k) {
+			ler((cabeca + disponiveis) & mascara);
+			disponiveis++;
+		}
+		return (cabeca + k - 1) & mascara;
+	}
+
+	private void ler(int s) throws Exception {
+		TipoToken tipo = fonte.proxTipo();
+		if (tipo == null) {
+			// depois do EOF, repete o EOF anterior
+			int anterior = (s - 1) & mascara;
+			tipos[s] = TipoToken.EOF;
+			inicios[s] = inicios[anterior];
+			tamanhos[s] = 0;
+			if (leitor == null) {
+				linhas[s] = linhas[anterior];
+				colunas[s] = colunas[anterior];
+			}
+			return;
+		}
+		tipos[s] = tipo;
+		inicios[s] = fonte.getInicioToken();
+		tamanhos[s] = fonte.getTamanhoToken();
+		if (leitor == null) {
+			linhas[s] = fonte.getLinhaToken();
+			colunas[s] = fonte.getColunaToken();
+			int tamanho = tamanhos[s];
+			if (lexemas[s].length < tamanho) lexemas[s] = new char[Math.max(tamanho, lexemas[s].length * 2)];
+			System.arraycopy(fonte.getBufferLexemaToken(), fonte.getInicioBufferLexemaToken(), lexemas[s], 0, tamanho);
+		}
+	}
+}
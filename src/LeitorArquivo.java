@@ -1,6 +1,16 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 public class LeitorArquivo {
 
@@ -14,22 +24,96 @@ public class LeitorArquivo {
     private int pushLinha;
     private int pushColuna;
 
+    // modo mapeado: arquivo inteiro em memória, lido por índice.
+    // Nesse modo linha/coluna não são atualizadas a cada char: saem da TabelaLinhas quando pedidas.
+    private char[] fonte;                // null no modo com BufferedReader
+    private int inicio;                  // primeiro char válido em 'fonte'
+    private int tamanho;                 // fim (exclusivo) dos chars válidos em 'fonte'
+
+    // modo UTF-8: os bytes do arquivo mapeado são lidos direto, sem decodificar para char[].
+    // Fora de cadeias e comentários o GYH só tem ASCII, então cada byte é um char; offsets,
+    // 'inicio', 'tamanho' e 'pos' passam a contar bytes.
+    private ByteBuffer bytes;            // null nos outros modos
+    private TabelaLinhas tabelaLinhas;   // montada na primeira consulta de posição
+    private int pos;                     // índice do próximo char a ser lido (mantido nos dois modos)
+
+    // início do lexema corrente; no modo com BufferedReader os chars do lexema ficam em 'gravacao',
+    // gravados só de marcarLexema() até encerrarLexema() (brancos e comentários não são gravados)
+    private int marca;
+    private final StringBuilder gravacao = new StringBuilder();
+    private boolean gravando;
+    private char[] copiaGravacao = new char[64];
+
     public LeitorArquivo(String nomeArq) throws IOException {
-        br = new BufferedReader(new FileReader(nomeArq));
+        this(nomeArq, false);
+    }
+
+    // mapeado = true: mapeia o arquivo com FileChannel.map e decodifica uma única vez para char[]
+    public LeitorArquivo(String nomeArq, boolean mapeado) throws IOException {
+        if (mapeado) {
+            carregarMapeado(nomeArq);
+        } else {
+            br = new BufferedReader(new FileReader(nomeArq));
+        }
+    }
+
+    // Leitor sobre o trecho [inicio, fim) de um fonte já carregado (modo mapeado).
+    // Os índices continuam absolutos; linha e coluna partem de 1 e 0, então 'inicio' deve ser começo de linha.
+    public LeitorArquivo(char[] fonte, int inicio, int fim) {
+        this.fonte = fonte;
+        this.inicio = inicio;
+        this.pos = inicio;
+        this.tamanho = fim;
+    }
+
+    // Leitor sobre o trecho [inicio, fim) de bytes UTF-8 (modo UTF-8), com as mesmas regras do construtor acima
+    public LeitorArquivo(ByteBuffer bytes, int inicio, int fim) {
+        this.bytes = bytes;
+        this.inicio = inicio;
+        this.pos = inicio;
+        this.tamanho = fim;
+    }
+
+    // Mapeia o arquivo com FileChannel.map e o lê como bytes UTF-8, sem cópia para o heap (modo UTF-8)
+    public static LeitorArquivo mapearUtf8(String nomeArq) throws IOException {
+        try (FileChannel canal = FileChannel.open(Paths.get(nomeArq), StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return new LeitorArquivo(mapa, 0, mapa.limit());
+        }
+    }
+
+    private void carregarMapeado(String nomeArq) throws IOException {
+        try (FileChannel canal = FileChannel.open(Paths.get(nomeArq), StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            // mesmo charset usado pelo FileReader
+            CharBuffer chars = Charset.defaultCharset().decode(mapa);
+            fonte = chars.array();
+            tamanho = chars.limit();
+        }
     }
 
     // Lê próximo caractere e atualiza linha/coluna
     public int lerProxCaracter() throws IOException {
+        if (fonte != null) {
+            return pos < tamanho ? fonte[pos++] : -1;
+        }
+        if (bytes != null) {
+            return pos < tamanho ? bytes.get(pos++) & 0xFF : -1;
+        }
         if (pushbackChar != null) {
             int c = pushbackChar;
             pushbackChar = null;
             // posição já é a do char devolvido
             linha = pushLinha;
             coluna = pushColuna;
+            pos++;
+            if (gravando) gravacao.append((char) c);
             return c;
         }
         int c = br.read();
         if (c == -1) return -1;
+        pos++;
+        if (gravando) gravacao.append((char) c);
 
         // atualiza posição
         if (c == '\n') {
@@ -44,14 +128,186 @@ public class LeitorArquivo {
         return c;
     }
 
-    // Devolve um caractere lido (pushback) preservando posição
+    /**
+     * Pula espaços, tabs, quebras de linha e comentários ('#' até o fim da linha) direto no vetor,
+     * sem passar por lerProxCaracter(). Só no modo mapeado.
+     * Sequências de espaços (indentação) e o corpo dos comentários são testados de 4 em 4 chars,
+     * combinando as comparações com '|' para ter um único desvio por bloco.
+     */
+    public void pularBrancos() {
+        if (bytes != null) {
+            pularBrancosUtf8();
+            return;
+        }
+        final char[] f = fonte;
+        final int fim = tamanho;
+        int i = pos;
+        while (i < fim) {
+            char c = f[i];
+            if (c == ' ') {
+                i++;
+                while (i + 4 <= fim && ((f[i] ^ ' ') | (f[i + 1] ^ ' ') | (f[i + 2] ^ ' ') | (f[i + 3] ^ ' ')) == 0) {
+                    i += 4;
+                }
+            } else if (c == '\n' || c == '\t' || c == '\r') {
+                i++;
+            } else if (c == '#') {
+                i++;
+                while (i + 4 <= fim && !(f[i] == '\n' | f[i + 1] == '\n' | f[i + 2] == '\n' | f[i + 3] == '\n')) {
+                    i += 4;
+                }
+                while (i < fim && f[i] != '\n') i++;
+            } else {
+                break;
+            }
+        }
+        pos = i;
+    }
+
+    /**
+     * pularBrancos() sobre os bytes UTF-8: lê 4 bytes por vez com getInt. Um bloco de espaços é
+     * 0x20202020; para achar o '\n' que encerra um comentário usa-se o teste de "byte zero" em
+     * (bloco ^ 0x0A0A0A0A). Bytes de sequências multibyte (>= 0x80) nunca são '\n', então o corpo
+     * dos comentários não precisa ser decodificado.
+     */
+    private void pularBrancosUtf8() {
+        final ByteBuffer b = bytes;
+        final int fim = tamanho;
+        int i = pos;
+        while (i < fim) {
+            int c = b.get(i);
+            if (c == ' ') {
+                i++;
+                while (i + 4 <= fim && b.getInt(i) == 0x20202020) {
+                    i += 4;
+                }
+            } else if (c == '\n' || c == '\t' || c == '\r') {
+                i++;
+            } else if (c == '#') {
+                i++;
+                while (i + 4 <= fim) {
+                    int x = b.getInt(i) ^ 0x0A0A0A0A;
+                    if (((x - 0x01010101) & ~x & 0x80808080) != 0) break;
+                    i += 4;
+                }
+                while (i < fim && b.get(i) != '\n') i++;
+            } else {
+                break;
+            }
+        }
+        pos = i;
+    }
+
+    // Devolve um caractere lido (pushback) preservando posição.
+    // No modo mapeado basta recuar o índice, então vários chars podem ser devolvidos em sequência.
     public void devolverCaracter(int c) {
         if (c == -1) return;
+        if (isMapeado()) {
+            pos--;
+            return;
+        }
         if (pushbackChar == null) {
             pushbackChar = c;
             pushLinha = linha;
             pushColuna = coluna;
+            pos--;
+            if (gravando && gravacao.length() > 0) gravacao.setLength(gravacao.length() - 1);
+        }
+    }
+
+    // Marca o início de um lexema: o próximo char lido será o primeiro dele
+    public void marcarLexema() {
+        marca = pos;
+        gravacao.setLength(0);
+        gravando = !isMapeado();
+    }
+
+    // Fim do lexema corrente: os chars lidos daqui em diante não são gravados. O lexema continua
+    // disponível até a próxima marca.
+    public void encerrarLexema() {
+        gravando = false;
+    }
+
+    public int getInicioLexema() {
+        return marca;
+    }
+
+    public int getTamanhoLexema() {
+        return pos - marca;
+    }
+
+    // Texto lido desde marcarLexema()
+    public String getLexemaAtual() {
+        if (isMapeado()) return lexema(marca, pos - marca);
+        return gravacao.toString();
+    }
+
+    // Vetor que contém os chars do lexema atual, a partir de getInicioBufferLexema(), sem criar String.
+    // No modo com BufferedReader a gravação é copiada para um vetor reaproveitado; no modo UTF-8
+    // também, byte a byte (só é usado para palavras, que são ASCII).
+    public char[] getBufferLexema() {
+        if (fonte != null) return fonte;
+        if (bytes != null) {
+            int tam = pos - marca;
+            if (copiaGravacao.length < tam) {
+                copiaGravacao = new char[Math.max(tam, copiaGravacao.length * 2)];
+            }
+            for (int i = 0; i < tam; i++) copiaGravacao[i] = (char) (bytes.get(marca + i) & 0xFF);
+            return copiaGravacao;
+        }
+        if (copiaGravacao.length < gravacao.length()) {
+            copiaGravacao = new char[Math.max(gravacao.length(), copiaGravacao.length * 2)];
+        }
+        gravacao.getChars(0, gravacao.length(), copiaGravacao, 0);
+        return copiaGravacao;
+    }
+
+    public int getInicioBufferLexema() {
+        return fonte != null ? marca : 0;
+    }
+
+    // Texto de um trecho qualquer do fonte; só disponível no modo mapeado.
+    // No modo UTF-8 só trechos com bytes >= 0x80 (cadeias) passam pelo decodificador.
+    public String lexema(int inicio, int tam) {
+        if (fonte != null) return new String(fonte, inicio, tam);
+        if (bytes == null) {
+            throw new IllegalStateException("Lexemas por posição exigem o modo mapeado");
         }
+        byte[] trecho = new byte[tam];
+        boolean ascii = true;
+        for (int i = 0; i < tam; i++) {
+            trecho[i] = bytes.get(inicio + i);
+            ascii &= trecho[i] >= 0;
+        }
+        return new String(trecho, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    // Modo UTF-8: verifica se o lexema atual é UTF-8 válido (usado nas cadeias). Nos outros modos é sempre true.
+    public boolean lexemaUtf8Valido() {
+        if (bytes == null) return true;
+        int i = marca;
+        while (i < pos && bytes.get(i) >= 0) i++;
+        if (i == pos) return true;
+        ByteBuffer trecho = bytes.duplicate();
+        trecho.limit(pos).position(marca);
+        try {
+            StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(trecho);
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+
+    // Texto do char 'c' que acabou de ser lido. No modo UTF-8, se 'c' inicia uma sequência multibyte,
+    // os bytes de continuação também são consumidos e o code point inteiro é devolvido.
+    public String completarCaracter(int c) {
+        if (bytes == null || c < 0x80) return String.valueOf((char) c);
+        int ini = pos - 1;
+        while (pos < tamanho && (bytes.get(pos) & 0xC0) == 0x80) pos++;
+        return lexema(ini, pos - ini);
     }
 
     public void fecharArquivo() throws IOException {
@@ -68,11 +324,80 @@ public class LeitorArquivo {
         this.br = br;
     }
 
+    // Posição do último char lido
     public int getLinhaAtual() {
+        if (isMapeado()) return getTabelaLinhas().linha(pos - 1);
         return linha;
     }
 
     public int getColunaAtual() {
+        if (isMapeado()) return getTabelaLinhas().coluna(pos - 1);
         return coluna;
     }
+
+    // Índice de linhas do fonte (modo mapeado), montado na primeira chamada
+    public TabelaLinhas getTabelaLinhas() {
+        if (tabelaLinhas == null) {
+            if (bytes != null) {
+                tabelaLinhas = new TabelaLinhas(bytes, inicio, tamanho);
+            } else if (fonte != null) {
+                tabelaLinhas = new TabelaLinhas(fonte, inicio, tamanho);
+            } else {
+                throw new IllegalStateException("A tabela de linhas exige o modo mapeado");
+            }
+        }
+        return tabelaLinhas;
+    }
+
+    // Leitura por índice: modo mapeado (char[]) ou UTF-8 (bytes)
+    public boolean isMapeado() {
+        return fonte != null || bytes != null;
+    }
+
+    public boolean isUtf8() {
+        return bytes != null;
+    }
+
+    // Índice (0-based) do próximo char a ser lido
+    public int getPosicao() {
+        return pos;
+    }
+
+    // Reposiciona a leitura no índice 'posicao' (modo mapeado)
+    public void posicionar(int posicao) {
+        if (!isMapeado()) {
+            throw new IllegalStateException("Reposicionar exige o modo mapeado");
+        }
+        pos = posicao;
+    }
+
+    // Início dos chars válidos em 'fonte' (0, exceto em leitores sobre um trecho)
+    public int getInicio() {
+        return inicio;
+    }
+
+    // Fonte inteiro no modo mapeado (null no modo com BufferedReader)
+    public char[] getFonte() {
+        return fonte;
+    }
+
+    // Bytes do fonte no modo UTF-8 (null nos outros modos)
+    public ByteBuffer getBytes() {
+        return bytes;
+    }
+
+    // Fim (exclusivo) do fonte no modo mapeado
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    // Char (ou byte, no modo UTF-8) na posição 'i', sem mover a leitura
+    public int caracterEm(int i) {
+        return fonte != null ? fonte[i] : bytes.get(i) & 0xFF;
+    }
+
+    // Novo leitor sobre o trecho [inicio, fim) do mesmo fonte, no mesmo modo
+    public LeitorArquivo trecho(int inicio, int fim) {
+        return fonte != null ? new LeitorArquivo(fonte, inicio, fim) : new LeitorArquivo(bytes, inicio, fim);
+    }
 }
\ No newline at end of file
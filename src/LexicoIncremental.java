@@ -0,0 +1,388 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Análise léxica incremental: guarda o fonte e os tokens de um documento e, a cada edição, refaz só os
+ * tokens afetados.
+ *
+ * O texto fica em um vetor com uma lacuna (gap buffer) no ponto da última edição, e os tokens em vetores
+ * paralelos com outra lacuna; os tokens depois dela guardam o início relativo ao fim do texto, que não
+ * muda quando se edita antes deles. Uma edição só move as lacunas até o ponto editado e relê o trecho
+ * afetado: o sufixo que não mudou não é copiado nem deslocado.
+ *
+ * A análise recomeça no início da linha editada (ou no início de um token que a atravesse, como uma
+ * cadeia de várias linhas) e para assim que um token novo, já depois do texto inserido, começa no mesmo
+ * ponto de um token antigo: daí em diante o texto é idêntico, então os tokens antigos continuam valendo.
+ * O AnalisadorLexico lê o trecho antes da lacuna, que é contíguo; se um token chega ao fim dele, a lacuna
+ * é empurrada para a frente (copiando só os chars que ela atravessa) e o token é lido de novo.
+ *
+ * Os erros léxicos viram tokens TipoToken.Erro, como no modo de recuperação do AnalisadorLexico: uma
+ * cadeia ainda sem o '"' final, por exemplo, não deixa o documento pela metade. O texto é guardado como
+ * char[]; um BufferTokens do modo UTF-8 é decodificado uma vez e tokenizado de novo, e os offsets passam
+ * a contar chars. O GyhLangLexer não tem modo incremental.
+ */
+public class LexicoIncremental {
+
+	private static final TipoToken[] TIPOS = TipoToken.values();
+	private static final int LACUNA_INICIAL = 1024;
+	// quanto a lacuna do texto anda quando a reanálise chega nela; dobra a cada vez na mesma edição
+	private static final int PASSO_INICIAL = 256;
+
+	// texto em [0, lacunaInicio) e [lacunaFim, texto.length)
+	private char[] texto;
+	private int lacunaInicio;
+	private int lacunaFim;
+	private final int inicio;   // primeiro char válido (0, exceto em leitores sobre um trecho)
+
+	// tokens em [0, tokensLacunaInicio), com o início absoluto, e em [tokensLacunaFim, tipos.length),
+	// com o início menos o tamanho do texto
+	private byte[] tipos;
+	private int[] inicios;
+	private int[] tamanhos;
+	private int tokensLacunaInicio;
+	private int tokensLacunaFim;
+
+	/**
+	 * @param tokens tokens do fonte original (de AnalisadorLexico.tokenizar), em modo mapeado ou UTF-8
+	 */
+	public LexicoIncremental(BufferTokens tokens) throws Exception {
+		LeitorArquivo fonte = tokens.getFonte();
+		if (fonte.getFonte() != null) {
+			texto = Arrays.copyOf(fonte.getFonte(), fonte.getTamanho() + LACUNA_INICIAL);
+			lacunaInicio = fonte.getTamanho();
+			inicio = fonte.getInicio();
+		} else if (fonte.isUtf8()) {
+			ByteBuffer bytes = fonte.getBytes().duplicate();
+			bytes.limit(fonte.getTamanho()).position(fonte.getInicio());
+			CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+			lacunaInicio = chars.remaining();
+			texto = new char[lacunaInicio + LACUNA_INICIAL];
+			chars.get(texto, 0, lacunaInicio);
+			inicio = 0;
+			AnalisadorLexico lexico = new AnalisadorLexico(new LeitorArquivo(texto, 0, lacunaInicio));
+			lexico.setModoRecuperacao(true);
+			lexico.setDiagnosticos(new Diagnosticos(Diagnosticos.SEM_LIMITE));
+			tokens = lexico.tokenizar();
+		} else {
+			throw new IllegalStateException("A reanálise incremental exige o modo mapeado ou UTF-8");
+		}
+		lacunaFim = texto.length;
+
+		int n = tokens.getQuantidade();
+		tipos = new byte[n + LACUNA_INICIAL];
+		inicios = new int[n + LACUNA_INICIAL];
+		tamanhos = new int[n + LACUNA_INICIAL];
+		for (int i = 0; i < n; i++) {
+			tipos[i] = (byte) tokens.getTipo(i).ordinal();
+			inicios[i] = tokens.getInicio(i);
+			tamanhos[i] = tokens.getTamanho(i);
+		}
+		tokensLacunaInicio = n;
+		tokensLacunaFim = tipos.length;
+	}
+
+	/**
+	 * Aplica a edição ao texto e refaz os tokens afetados.
+	 * @param offset posição da edição no texto atual
+	 * @param removidos quantidade de chars removidos a partir de 'offset'
+	 * @param inserido texto colocado no lugar dos chars removidos
+	 */
+	public void editar(int offset, int removidos, String inserido) throws Exception {
+		int fim = getTamanhoTexto();
+		if (offset < inicio || removidos < 0 || offset + removidos > fim) {
+			throw new IllegalArgumentException("Edição fora do fonte: offset " + offset + ", removidos " + removidos);
+		}
+
+		// recomeça no início da linha editada, ou antes, se um token antigo atravessa esse ponto ou termina
+		// nele (o léxico leu o char seguinte, como o EOF que encerrou uma cadeia sem '"')
+		int reinicio = offset;
+		while (reinicio > inicio && caracterEm(reinicio - 1) != '\n') reinicio--;
+		int primeiro = buscar(reinicio);
+		if (primeiro > 0 && getInicio(primeiro - 1) + getTamanho(primeiro - 1) >= reinicio) {
+			primeiro--;
+			reinicio = getInicio(primeiro);
+		}
+
+		// os tokens antigos a partir de 'primeiro' passam para depois da lacuna antes de o tamanho mudar
+		moverLacunaTokens(primeiro);
+
+		// a lacuna do texto vai para o ponto editado, engole os chars removidos e recebe os inseridos
+		moverLacuna(offset);
+		lacunaFim += removidos;
+		garantirLacuna(inserido.length());
+		inserido.getChars(0, inserido.length(), texto, lacunaInicio);
+		lacunaInicio += inserido.length();
+
+		int fimInserido = offset + inserido.length();
+		int tamanhoTexto = getTamanhoTexto();
+		Diagnosticos descartados = new Diagnosticos(Diagnosticos.SEM_LIMITE);
+		int retomada = reinicio;
+		int passo = PASSO_INICIAL;
+		while (true) {
+			int limite = lacunaInicio;
+			boolean ateOFim = limite == tamanhoTexto;
+			AnalisadorLexico lexico = new AnalisadorLexico(new LeitorArquivo(texto, retomada, limite));
+			lexico.setModoRecuperacao(true);
+			lexico.setDiagnosticos(descartados);
+			TipoToken tipo;
+			while ((tipo = lexico.proxTipo()) != null) {
+				int ini = lexico.getInicioToken();
+				int tam = lexico.getTamanhoToken();
+				// o léxico também leu o char depois do token: ele precisa vir antes da lacuna
+				if (!ateOFim && ini + tam >= limite) break;
+				if (ini >= fimInserido && sincronizar(ini)) return;
+				adicionar(tipo, ini, tam);
+				retomada = ini + tam;
+			}
+			if (ateOFim) {
+				tokensLacunaFim = tipos.length;
+				return;
+			}
+			moverLacuna(Math.min(tamanhoTexto, limite + passo));
+			passo *= 2;
+		}
+	}
+
+	// Descarta os tokens antigos que começam antes de 'ini' e diz se o próximo começa exatamente nele
+	private boolean sincronizar(int ini) {
+		int relativo = ini - getTamanhoTexto();
+		while (tokensLacunaFim < tipos.length && inicios[tokensLacunaFim] < relativo) tokensLacunaFim++;
+		return tokensLacunaFim < tipos.length && inicios[tokensLacunaFim] == relativo;
+	}
+
+	private void adicionar(TipoToken tipo, int ini, int tam) {
+		if (tokensLacunaInicio == tokensLacunaFim) crescerTokens();
+		tipos[tokensLacunaInicio] = (byte) tipo.ordinal();
+		inicios[tokensLacunaInicio] = ini;
+		tamanhos[tokensLacunaInicio] = tam;
+		tokensLacunaInicio++;
+	}
+
+	// --- Lacunas ---
+
+	// Leva a lacuna do texto para 'posicao', copiando só os chars entre as duas posições
+	private void moverLacuna(int posicao) {
+		int lacuna = lacunaFim - lacunaInicio;
+		if (posicao < lacunaInicio) {
+			System.arraycopy(texto, posicao, texto, posicao + lacuna, lacunaInicio - posicao);
+		} else if (posicao > lacunaInicio) {
+			System.arraycopy(texto, lacunaFim, texto, lacunaInicio, posicao - lacunaInicio);
+		}
+		lacunaInicio = posicao;
+		lacunaFim = posicao + lacuna;
+	}
+
+	private void garantirLacuna(int n) {
+		if (lacunaFim - lacunaInicio >= n) return;
+		int depois = texto.length - lacunaFim;
+		char[] novo = new char[Math.max(texto.length * 2, texto.length + n + LACUNA_INICIAL)];
+		System.arraycopy(texto, 0, novo, 0, lacunaInicio);
+		System.arraycopy(texto, lacunaFim, novo, novo.length - depois, depois);
+		lacunaFim = novo.length - depois;
+		texto = novo;
+	}
+
+	// Deixa os tokens [0, k) antes da lacuna, convertendo o início dos que atravessam a lacuna
+	private void moverLacunaTokens(int k) {
+		int tamanhoTexto = getTamanhoTexto();
+		while (tokensLacunaInicio > k) {
+			tokensLacunaInicio--;
+			tokensLacunaFim--;
+			tipos[tokensLacunaFim] = tipos[tokensLacunaInicio];
+			tamanhos[tokensLacunaFim] = tamanhos[tokensLacunaInicio];
+			inicios[tokensLacunaFim] = inicios[tokensLacunaInicio] - tamanhoTexto;
+		}
+		while (tokensLacunaInicio < k) {
+			tipos[tokensLacunaInicio] = tipos[tokensLacunaFim];
+			tamanhos[tokensLacunaInicio] = tamanhos[tokensLacunaFim];
+			inicios[tokensLacunaInicio] = inicios[tokensLacunaFim] + tamanhoTexto;
+			tokensLacunaInicio++;
+			tokensLacunaFim++;
+		}
+	}
+
+	private void crescerTokens() {
+		int depois = tipos.length - tokensLacunaFim;
+		int nova = Math.max(tipos.length * 2, LACUNA_INICIAL);
+		byte[] novosTipos = new byte[nova];
+		int[] novosInicios = new int[nova];
+		int[] novosTamanhos = new int[nova];
+		System.arraycopy(tipos, 0, novosTipos, 0, tokensLacunaInicio);
+		System.arraycopy(inicios, 0, novosInicios, 0, tokensLacunaInicio);
+		System.arraycopy(tamanhos, 0, novosTamanhos, 0, tokensLacunaInicio);
+		System.arraycopy(tipos, tokensLacunaFim, novosTipos, nova - depois, depois);
+		System.arraycopy(inicios, tokensLacunaFim, novosInicios, nova - depois, depois);
+		System.arraycopy(tamanhos, tokensLacunaFim, novosTamanhos, nova - depois, depois);
+		tipos = novosTipos;
+		inicios = novosInicios;
+		tamanhos = novosTamanhos;
+		tokensLacunaFim = nova - depois;
+	}
+
+	// --- Consulta ---
+
+	public int getTamanhoTexto() {
+		return texto.length - (lacunaFim - lacunaInicio);
+	}
+
+	public char caracterEm(int i) {
+		return texto[i < lacunaInicio ? i : i + lacunaFim - lacunaInicio];
+	}
+
+	// Trecho [ini, ini + tam) do texto atual
+	public String getTexto(int ini, int tam) {
+		int lacuna = lacunaFim - lacunaInicio;
+		if (ini + tam <= lacunaInicio) return new String(texto, ini, tam);
+		if (ini >= lacunaInicio) return new String(texto, ini + lacuna, tam);
+		int antes = lacunaInicio - ini;
+		return new StringBuilder(tam).append(texto, ini, antes).append(texto, lacunaFim, tam - antes).toString();
+	}
+
+	public int getQuantidade() {
+		return tipos.length - (tokensLacunaFim - tokensLacunaInicio);
+	}
+
+	private int fisico(int i) {
+		return i < tokensLacunaInicio ? i : i + tokensLacunaFim - tokensLacunaInicio;
+	}
+
+	public TipoToken getTipo(int i) {
+		return TIPOS[tipos[fisico(i)]];
+	}
+
+	public int getInicio(int i) {
+		int j = fisico(i);
+		return j < tokensLacunaInicio ? inicios[j] : inicios[j] + getTamanhoTexto();
+	}
+
+	public int getTamanho(int i) {
+		return tamanhos[fisico(i)];
+	}
+
+	public String getLexema(int i) {
+		int tam = getTamanho(i);
+		return tam == 0 ? "" : getTexto(getInicio(i), tam);
+	}
+
+	// Índice do primeiro token que começa em 'offset' ou depois (busca binária)
+	public int buscar(int offset) {
+		int lo = 0;
+		int hi = getQuantidade();
+		while (lo < hi) {
+			int meio = (lo + hi) >>> 1;
+			if (getInicio(meio) < offset) lo = meio + 1;
+			else hi = meio;
+		}
+		return lo;
+	}
+
+	/**
+	 * Percorre os tokens do início como uma FonteTokens (por exemplo para o AnalisadorSintatico). O texto
+	 * tem uma lacuna, então a fonte é lida como fluxo: linha e coluna são contadas ao longo do texto, com
+	 * a mesma convenção da TabelaLinhas.
+	 */
+	public FonteTokens cursor() {
+		return new Cursor();
+	}
+
+	private class Cursor implements FonteTokens {
+		private int atual = -1;
+		// texto já percorrido: quebras de linha e colunas antes de 'percorrido'
+		private int percorrido = inicio;
+		private int linhas;
+		private int colunas;
+		private int linhaToken;
+		private int colunaToken;
+		private char[] copia = new char[16];
+
+		@Override
+		public TipoToken proxTipo() {
+			if (atual + 1 >= getQuantidade()) return null;
+			atual++;
+			localizar(getInicio(atual));
+			return getTipo(atual);
+		}
+
+		// Posição do token que começa em 'offset'; a do EOF é a do último char lido
+		private void localizar(int offset) {
+			int fim = getTamanhoTexto();
+			int j = offset < fim ? offset : fim - 1;
+			if (j < inicio) {
+				linhaToken = 1;
+				colunaToken = 0;
+				return;
+			}
+			while (percorrido < j) {
+				char c = caracterEm(percorrido++);
+				if (c == '\n') {
+					linhas++;
+					colunas = 0;
+				} else if (c != '\r') {
+					colunas++;
+				}
+			}
+			char c = caracterEm(j);
+			if (c == '\n') {
+				linhaToken = linhas + 2;
+				colunaToken = 0;
+			} else {
+				linhaToken = linhas + 1;
+				colunaToken = c != '\r' ? colunas + 1 : colunas;
+			}
+		}
+
+		@Override
+		public int getInicioToken() {
+			return getInicio(atual);
+		}
+
+		@Override
+		public int getTamanhoToken() {
+			return getTamanho(atual);
+		}
+
+		@Override
+		public int getLinhaToken() {
+			return linhaToken;
+		}
+
+		@Override
+		public int getColunaToken() {
+			return colunaToken;
+		}
+
+		@Override
+		public String getLexemaToken() {
+			return getLexema(atual);
+		}
+
+		// Os chars do texto, se o token não atravessa a lacuna; senão, uma cópia em um vetor reaproveitado
+		@Override
+		public char[] getBufferLexemaToken() {
+			int ini = getInicio(atual);
+			int tam = getTamanho(atual);
+			if (ini + tam <= lacunaInicio || ini >= lacunaInicio) return texto;
+			if (copia.length < tam) copia = new char[Math.max(tam, copia.length * 2)];
+			int antes = lacunaInicio - ini;
+			System.arraycopy(texto, ini, copia, 0, antes);
+			System.arraycopy(texto, lacunaFim, copia, antes, tam - antes);
+			return copia;
+		}
+
+		@Override
+		public int getInicioBufferLexemaToken() {
+			int ini = getInicio(atual);
+			int tam = getTamanho(atual);
+			if (ini + tam <= lacunaInicio) return ini;
+			if (ini >= lacunaInicio) return ini + lacunaFim - lacunaInicio;
+			return 0;
+		}
+
+		@Override
+		public LeitorArquivo getLeitorIndexado() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Análise léxica paralela para fontes grandes.
+ *
+ * Comentários vão do '#' até o fim da linha e cadeias não atravessam linhas, então o fonte pode ser
+ * cortado em quebras de linha e cada pedaço tokenizado de forma independente. Os pedaços são
+ * analisados em um ForkJoinPool e depois costurados; como os tokens guardam offsets absolutos,
+ * as linhas saem da TabelaLinhas do fonte inteiro sem nenhuma correção.
+ * Se algum pedaço tiver erro léxico (por exemplo uma cadeia cortada ao meio), o arquivo inteiro é
+ * analisado de novo em sequência, para que os erros saiam exatamente como no modo sequencial.
+ * Funciona tanto no modo mapeado (char[]) quanto no modo UTF-8 (bytes): '\n' nunca faz parte de uma
+ * sequência multibyte, então os cortes são sempre fronteiras de char.
+ * O BenchmarkGyh compara o resultado com o modo sequencial (e o usa com -Dgyh.lexicoParalelo=true).
+ */
+public class LexicoParalelo {
+
+	// abaixo disso não compensa dividir o arquivo
+	private static final int TAMANHO_MINIMO_PEDACO = 64 * 1024;
+
+	public static BufferTokens tokenizar(String nomeArq) throws Exception {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		return tokenizar(new LeitorArquivo(nomeArq, true), pool.getParallelism(), pool, null);
+	}
+
+	/**
+	 * @param leitor leitor no modo mapeado ou UTF-8, ainda não lido
+	 * @param partes quantidade desejada de pedaços
+	 * @param diagnosticos se não for null, liga o modo de recuperação (ver AnalisadorLexico.setModoRecuperacao)
+	 *                     e recebe os erros léxicos; se for null, o primeiro erro é lançado como exceção
+	 */
+	public static BufferTokens tokenizar(LeitorArquivo leitor, int partes, ForkJoinPool pool,
+			Diagnosticos diagnosticos) throws Exception {
+		return tokenizar(leitor, partes, pool, diagnosticos, TAMANHO_MINIMO_PEDACO);
+	}
+
+	// 'tamanhoMinimo' abaixo do padrão força cortes em arquivos pequenos (comparação com o modo sequencial)
+	static BufferTokens tokenizar(LeitorArquivo leitor, int partes, ForkJoinPool pool,
+			Diagnosticos diagnosticos, int tamanhoMinimo) throws Exception {
+		if (!leitor.isMapeado()) {
+			throw new IllegalStateException("A análise léxica paralela exige o modo de leitura mapeado");
+		}
+		int[] cortes = dividir(leitor, leitor.getPosicao(), leitor.getTamanho(), partes, tamanhoMinimo);
+		if (cortes.length <= 2) {
+			return sequencial(leitor, diagnosticos);
+		}
+
+		List<Callable<Pedaco>> tarefas = new ArrayList<>();
+		final LeitorArquivo origem = leitor;
+		final boolean recuperar = diagnosticos != null;
+		for (int i = 0; i + 1 < cortes.length; i++) {
+			final int inicio = cortes[i];
+			final int fim = cortes[i + 1];
+			tarefas.add(new Callable<Pedaco>() {
+				public Pedaco call() throws Exception {
+					AnalisadorLexico lexico = new AnalisadorLexico(origem.trecho(inicio, fim));
+					lexico.setModoRecuperacao(recuperar);
+					// um pedaço com erro é refeito em sequência: basta achar o primeiro
+					lexico.setDiagnosticos(new Diagnosticos(1));
+					try {
+						return new Pedaco(lexico.tokenizar(), false);
+					} catch (Diagnosticos.LimiteAtingido e) {
+						return new Pedaco(null, true);
+					}
+				}
+			});
+		}
+
+		List<Pedaco> pedacos = new ArrayList<>();
+		try {
+			for (Future<Pedaco> f : pool.invokeAll(tarefas)) {
+				Pedaco pedaco = f.get();
+				if (pedaco.comErros) {
+					return sequencial(leitor, diagnosticos);
+				}
+				pedacos.add(pedaco);
+			}
+		} catch (ExecutionException e) {
+			return sequencial(leitor, diagnosticos);
+		}
+
+		// costura: só o EOF do último pedaço é mantido
+		BufferTokens tokens = new BufferTokens(leitor);
+		for (int i = 0; i < pedacos.size(); i++) {
+			tokens.anexar(pedacos.get(i).tokens, i == pedacos.size() - 1);
+		}
+		return tokens;
+	}
+
+	// Resultado da análise de um pedaço do fonte
+	private static class Pedaco {
+		private final BufferTokens tokens;
+		private final boolean comErros;
+
+		Pedaco(BufferTokens tokens, boolean comErros) {
+			this.tokens = tokens;
+			this.comErros = comErros;
+		}
+	}
+
+	private static BufferTokens sequencial(LeitorArquivo leitor, Diagnosticos diagnosticos) throws Exception {
+		AnalisadorLexico lexico = new AnalisadorLexico(leitor);
+		lexico.setModoRecuperacao(diagnosticos != null);
+		if (diagnosticos != null) lexico.setDiagnosticos(diagnosticos);
+		return lexico.tokenizar();
+	}
+
+	/**
+	 * Escolhe até 'partes' trechos de tamanho parecido, cada um terminando logo após um '\n'
+	 * (o último termina no fim do fonte).
+	 * @return os pontos de corte, incluindo 'inicio' e 'fim'.
+	 */
+	static int[] dividir(LeitorArquivo fonte, int inicio, int fim, int partes, int tamanhoMinimo) {
+		int alvo = Math.max(Math.max(1, tamanhoMinimo), (fim - inicio) / Math.max(1, partes));
+		List<Integer> cortes = new ArrayList<>();
+		cortes.add(inicio);
+		int pos = inicio + alvo;
+		while (pos < fim) {
+			while (pos < fim && fonte.caracterEm(pos - 1) != '\n') pos++;
+			if (pos >= fim) break;
+			cortes.add(pos);
+			pos += alvo;
+		}
+		cortes.add(fim);
+
+		int[] resultado = new int[cortes.size()];
+		for (int i = 0; i < resultado.length; i++) resultado[i] = cortes.get(i);
+		return resultado;
+	}
+}
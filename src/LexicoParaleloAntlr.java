@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Análise léxica paralela com o GyhLangLexer sobre um CharStreamMapeado.
+ *
+ * Como em GyhLang.g4 comentários e cadeias não atravessam linhas, a entrada é cortada em inícios de linha
+ * e cada pedaço é tokenizado em um ForkJoinPool por um GyhLangLexer próprio, sobre uma visão do trecho
+ * (CharStreamMapeado.trecho) que compartilha o arquivo mapeado e usa os índices da entrada inteira: nada é
+ * copiado, e os tokens (TokenCompacto) já saem com as posições, linhas e colunas do modo sequencial.
+ * Se algum pedaço tiver erro léxico, o texto inteiro é tokenizado de novo em sequência com o listener
+ * informado, para que os erros sejam reportados como no modo normal. Outros CharStreams não têm acesso
+ * aleatório seguro entre threads e são tokenizados em sequência.
+ *
+ * Usado pelo Main com -Dgyh.lexicoParalelo=true; BenchmarkParsing compara com o modo sequencial.
+ */
+public class LexicoParaleloAntlr {
+
+    // abaixo disso não compensa dividir o arquivo
+    private static final int TAMANHO_MINIMO_PEDACO = 64 * 1024;
+
+    /**
+     * Tokeniza 'input' por completo e devolve o fluxo de tokens pronto para o GyhLangParser.
+     * @param listener recebe os erros léxicos (só é usado se for preciso refazer em sequência)
+     */
+    public static CommonTokenStream tokenizar(CharStream input, int partes, ForkJoinPool pool,
+                                              ANTLRErrorListener listener) throws InterruptedException {
+        return tokenizar(input, partes, pool, listener, TAMANHO_MINIMO_PEDACO);
+    }
+
+    // 'tamanhoMinimo' abaixo do padrão força cortes em arquivos pequenos (comparação com o modo sequencial)
+    static CommonTokenStream tokenizar(CharStream input, int partes, ForkJoinPool pool,
+                                       ANTLRErrorListener listener, int tamanhoMinimo) throws InterruptedException {
+        if (!(input instanceof CharStreamMapeado)) {
+            return sequencial(input, listener);
+        }
+        CharStreamMapeado entrada = (CharStreamMapeado) input;
+        int[] cortes = dividir(entrada, partes, tamanhoMinimo);
+        if (cortes.length <= 2) {
+            return sequencial(input, listener);
+        }
+
+        // os tokens passam a apontar para a entrada completa, como se viessem de um único lexer
+        GyhLangLexer lexerCompleto = new GyhLangLexer(input);
+        final Pair<TokenSource, CharStream> origem = new Pair<TokenSource, CharStream>(lexerCompleto, input);
+
+        List<Callable<Pedaco>> tarefas = new ArrayList<>();
+        for (int i = 0; i + 1 < cortes.length; i++) {
+            final CharStreamMapeado trecho = entrada.trecho(cortes[i], cortes[i + 1]);
+            tarefas.add(new Callable<Pedaco>() {
+                public Pedaco call() {
+                    return tokenizarPedaco(trecho, origem);
+                }
+            });
+        }
+
+        List<Pedaco> pedacos = new ArrayList<>();
+        try {
+            for (Future<Pedaco> f : pool.invokeAll(tarefas)) {
+                Pedaco pedaco = f.get();
+                if (pedaco.comErros) {
+                    return sequencial(input, listener);
+                }
+                pedacos.add(pedaco);
+            }
+        } catch (ExecutionException e) {
+            return sequencial(input, listener);
+        }
+
+        // costura: só o EOF do último pedaço é mantido
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < pedacos.size(); i++) {
+            boolean ultimo = i == pedacos.size() - 1;
+            for (Token t : pedacos.get(i).tokens) {
+                if (t.getType() == Token.EOF && !ultimo) continue;
+                tokens.add(t);
+            }
+        }
+
+        CommonTokenStream fluxo = new CommonTokenStream(new ListTokenSource(tokens, input.getSourceName()));
+        fluxo.fill();
+        return fluxo;
+    }
+
+    private static CommonTokenStream sequencial(CharStream input, ANTLRErrorListener listener) {
+        input.seek(0);
+        GyhLangLexer lexer = new GyhLangLexer(input);
+        if (input instanceof CharStreamMapeado) lexer.setTokenFactory(FabricaTokens.PADRAO);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(listener);
+        CommonTokenStream fluxo = new CommonTokenStream(lexer);
+        fluxo.fill();
+        return fluxo;
+    }
+
+    private static Pedaco tokenizarPedaco(CharStreamMapeado trecho, final Pair<TokenSource, CharStream> origem) {
+        GyhLangLexer lexer = new GyhLangLexer(trecho);
+        // a FabricaTokens recebe a entrada completa no lugar da visão: linha e coluna saem dos índices,
+        // e a contagem de linhas do lexer, que começa em 1 em cada pedaço, não é usada
+        lexer.setTokenFactory(new TokenFactory<Token>() {
+            public Token create(Pair<TokenSource, CharStream> source, int type, String text, int channel,
+                                int start, int stop, int line, int charPositionInLine) {
+                return FabricaTokens.PADRAO.create(origem, type, text, channel, start, stop, line,
+                        charPositionInLine);
+            }
+
+            public Token create(int type, String text) {
+                return FabricaTokens.PADRAO.create(type, text);
+            }
+        });
+        final boolean[] erro = new boolean[1];
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                erro[0] = true;
+            }
+        });
+
+        List<Token> tokens = new ArrayList<>();
+        Token t;
+        do {
+            t = lexer.nextToken();
+            tokens.add(t);
+        } while (t.getType() != Token.EOF);
+
+        return new Pedaco(tokens, erro[0]);
+    }
+
+    /**
+     * Pontos de corte (incluindo 0 e o fim) de até 'partes' trechos, cada um começando no início de uma linha.
+     */
+    static int[] dividir(CharStreamMapeado entrada, int partes, int tamanhoMinimo) {
+        int fim = entrada.size();
+        int alvo = Math.max(Math.max(1, tamanhoMinimo), fim / Math.max(1, partes));
+        List<Integer> cortes = new ArrayList<>();
+        cortes.add(0);
+        int pos = alvo;
+        while (pos < fim) {
+            int corte = entrada.inicioLinha(pos);
+            if (corte >= fim) break;
+            cortes.add(corte);
+            pos = corte + alvo;
+        }
+        cortes.add(fim);
+
+        int[] resultado = new int[cortes.size()];
+        for (int i = 0; i < resultado.length; i++) resultado[i] = cortes.get(i);
+        return resultado;
+    }
+
+    // Tokens de um pedaço da entrada
+    private static class Pedaco {
+        private final List<Token> tokens;
+        private final boolean comErros;
+
+        Pedaco(List<Token> tokens, boolean comErros) {
+            this.tokens = tokens;
+            this.comErros = comErros;
+        }
+    }
+}
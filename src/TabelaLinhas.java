@@ -0,0 +1,88 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Índice com o offset de início de cada linha de um fonte carregado em memória.
+ * É montado em uma única passada e permite descobrir linha e coluna de um offset por busca binária,
+ * só quando uma mensagem precisa delas; o léxico guarda apenas offsets.
+ *
+ * Linha e coluna seguem a convenção do LeitorArquivo: a posição de um token é a do seu primeiro char
+ * (linha 1-based, coluna 1-based, '\r' não conta como coluna) e a do EOF é a do último char lido.
+ * Sobre bytes UTF-8 os offsets são de bytes, mas a coluna conta chars (bytes de continuação não contam).
+ */
+public class TabelaLinhas {
+
+	private final char[] fonte;
+	private final ByteBuffer bytes;
+	private final int inicio;
+	private final int fim;
+	private int[] inicios;      // offset do primeiro char de cada linha
+	private int quantidade;
+
+	public TabelaLinhas(char[] fonte, int inicio, int fim) {
+		this(fonte, null, inicio, fim);
+	}
+
+	public TabelaLinhas(ByteBuffer bytes, int inicio, int fim) {
+		this(null, bytes, inicio, fim);
+	}
+
+	private TabelaLinhas(char[] fonte, ByteBuffer bytes, int inicio, int fim) {
+		this.fonte = fonte;
+		this.bytes = bytes;
+		this.inicio = inicio;
+		this.fim = fim;
+		inicios = new int[64];
+		inicios[quantidade++] = inicio;
+		for (int i = inicio; i < fim; i++) {
+			if (unidade(i) == '\n') {
+				if (quantidade == inicios.length) inicios = Arrays.copyOf(inicios, quantidade * 2);
+				inicios[quantidade++] = i + 1;
+			}
+		}
+	}
+
+	// Linha do token que começa em 'offset' (offset >= fim é o EOF)
+	public int linha(int offset) {
+		int j = ultimoLido(offset);
+		if (j < inicio) return 1;
+		int k = indiceLinha(j);
+		return unidade(j) == '\n' ? k + 2 : k + 1;
+	}
+
+	// Coluna do token que começa em 'offset' (offset >= fim é o EOF)
+	public int coluna(int offset) {
+		int j = ultimoLido(offset);
+		if (j < inicio || unidade(j) == '\n') return 0;
+		int col = 0;
+		for (int i = inicios[indiceLinha(j)]; i <= j; i++) {
+			int c = unidade(i);
+			if (c != '\r' && (bytes == null || (c & 0xC0) != 0x80)) col++;
+		}
+		return col;
+	}
+
+	public int getQuantidadeLinhas() {
+		return quantidade;
+	}
+
+	// Offset do primeiro char da linha (1-based)
+	public int inicioDaLinha(int linha) {
+		return inicios[linha - 1];
+	}
+
+	private int unidade(int i) {
+		return fonte != null ? fonte[i] : bytes.get(i) & 0xFF;
+	}
+
+	// Char cuja leitura define a posição: o próprio offset, ou o último char do fonte no caso do EOF
+	private int ultimoLido(int offset) {
+		return offset < fim ? offset : fim - 1;
+	}
+
+	// Índice (0-based) da linha que contém o offset
+	private int indiceLinha(int offset) {
+		int i = Arrays.binarySearch(inicios, 0, quantidade, offset);
+		return i >= 0 ? i : -i - 2;
+	}
+}
@@ -0,0 +1,24 @@
+/**
+ * Tipos de nó da ArenaAst. O token de cada nó (ArenaAst.getToken) é indicado ao lado.
+ */
+public enum TipoNo {
+
+	Programa,       // '[' inicial; filhos: Declaracoes, Comandos
+	Declaracoes,    // filhos: Declaracao*
+	Declaracao,     // Var declarada; filho: TipoVar
+	TipoVar,        // INTEGER ou REAL
+	Comandos,       // lista de comandos do [PROGRAMA]; filhos: comandos
+	Atribuicao,     // Var atribuída; filho: expressão aritmética
+	Entrada,        // Var lida por LER
+	Saida,          // Var ou Cadeia impressa por IMPRIMIR
+	Se,             // SE; filhos: condição, comando do ENTAO e, se houver, do SENAO
+	Enquanto,       // ENQTO; filhos: condição, comando
+	Bloco,          // INICIO; filhos: comandos até o FINAL
+	OpAritmetico,   // + - * /; filhos: esquerdo, direito
+	OpRelacional,   // < <= > >= == !=; filhos: esquerdo, direito
+	OpBooleano,     // E, OU; filhos: esquerdo, direito
+	Numero,         // NumInt ou NumReal
+	Variavel,       // Var usada em uma expressão
+	Erro            // no modo de recuperação, lugar do nó de uma regra que falhou; token do pai
+
+}
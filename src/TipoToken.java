@@ -10,7 +10,8 @@ public enum TipoToken {
 	Var,
 	NumInt,
 	NumReal,
-	Cadeia, EOF
+	Cadeia, EOF,
+	Erro // emitido pelo léxico no modo de recuperação (ver AnalisadorLexico.setModoRecuperacao)
 	
 
 }
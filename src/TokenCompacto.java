@@ -0,0 +1,129 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+/**
+ * Token enxuto criado pela FabricaTokens sobre um CharStreamMapeado.
+ *
+ * Guarda só o tipo e o canal (juntos em um int), o intervalo na entrada e o índice no fluxo; o texto,
+ * a linha e a coluna são obtidos da entrada quando pedidos. Um CommonToken guarda também a linha, a
+ * coluna e o texto (quando copiado), o que pesa em arquivos com milhões de tokens.
+ */
+public class TokenCompacto implements WritableToken {
+
+    private final Pair<TokenSource, CharStream> origem;
+    private int tipoCanal;   // tipo nos 16 bits baixos (com sinal, para EOF = -1), canal nos altos
+    private final int inicio;
+    private final int fim;
+    private int indice = -1;
+
+    TokenCompacto(Pair<TokenSource, CharStream> origem, int tipo, int canal, int inicio, int fim) {
+        this.origem = origem;
+        this.tipoCanal = empacotar(tipo, canal);
+        this.inicio = inicio;
+        this.fim = fim;
+    }
+
+    private static int empacotar(int tipo, int canal) {
+        return (canal << 16) | (tipo & 0xFFFF);
+    }
+
+    private CharStreamMapeado entrada() {
+        return (CharStreamMapeado) origem.b;
+    }
+
+    @Override
+    public int getType() {
+        return (short) tipoCanal;
+    }
+
+    @Override
+    public int getChannel() {
+        return tipoCanal >> 16;
+    }
+
+    @Override
+    public String getText() {
+        if (getType() == Token.EOF) return "<EOF>";
+        return entrada().getText(Interval.of(inicio, fim));
+    }
+
+    @Override
+    public int getLine() {
+        return entrada().linha(inicio);
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+        return entrada().coluna(inicio);
+    }
+
+    @Override
+    public int getTokenIndex() {
+        return indice;
+    }
+
+    @Override
+    public int getStartIndex() {
+        return inicio;
+    }
+
+    @Override
+    public int getStopIndex() {
+        return fim;
+    }
+
+    @Override
+    public TokenSource getTokenSource() {
+        return origem.a;
+    }
+
+    @Override
+    public CharStream getInputStream() {
+        return origem.b;
+    }
+
+    @Override
+    public void setType(int ttype) {
+        tipoCanal = empacotar(ttype, getChannel());
+    }
+
+    @Override
+    public void setChannel(int channel) {
+        tipoCanal = empacotar(getType(), channel);
+    }
+
+    @Override
+    public void setTokenIndex(int index) {
+        indice = index;
+    }
+
+    // Texto, linha e coluna vêm sempre da entrada; quem precisa alterá-los recebe um CommonToken da fábrica
+    @Override
+    public void setText(String text) {
+        throw new UnsupportedOperationException("TokenCompacto não guarda texto");
+    }
+
+    @Override
+    public void setLine(int line) {
+        throw new UnsupportedOperationException("TokenCompacto não guarda a linha");
+    }
+
+    @Override
+    public void setCharPositionInLine(int pos) {
+        throw new UnsupportedOperationException("TokenCompacto não guarda a coluna");
+    }
+
+    // Mesmo formato do CommonToken.toString()
+    @Override
+    public String toString() {
+        String canal = getChannel() > 0 ? ",channel=" + getChannel() : "";
+        String texto = getText();
+        texto = texto.replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+        return "[@" + indice + "," + inicio + ":" + fim + "='" + texto + "',<" + getType() + ">" + canal
+                + "," + getLine() + ":" + getCharPositionInLine() + "]";
+    }
+}
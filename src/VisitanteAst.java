@@ -0,0 +1,12 @@
+/**
+ * Visitante da ArenaAst (ver ArenaAst.visitar). Os nós são identificados pelo índice na arena,
+ * então o percurso não cria objetos; o tipo do nó sai de ArenaAst.getTipo.
+ */
+public interface VisitanteAst {
+
+	// Chamado antes dos filhos; devolver false pula os filhos (sair não é chamado nesse caso)
+	boolean entrar(ArenaAst ast, int no) throws Exception;
+
+	// Chamado depois dos filhos
+	void sair(ArenaAst ast, int no) throws Exception;
+}